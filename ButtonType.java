@@ -1,4 +0,0 @@
-public enum ButtonType {
-	SAFE,
-	MINE
-}
@@ -0,0 +1,28 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point for benchmarks.jar. Same as running JMH's own Main, but
+ * results land in jmh-results.json as JSON unless you pass -rf/-rff,
+ * so runs can be diffed between commits.
+ * 
+ * Run it from the repo root so the icon benchmarks can find assets/.
+ */
+public class Benchmarks {
+
+	public static void main(String[] args) throws Exception {
+		List<String> jmhArgs = new ArrayList<String>(Arrays.asList(args));
+		if(!jmhArgs.contains("-rf")){
+			jmhArgs.add(0, "-rf");
+			jmhArgs.add(1, "json");
+		}
+		if(!jmhArgs.contains("-rff")){
+			jmhArgs.add(0, "-rff");
+			jmhArgs.add(1, "jmh-results.json");
+		}
+		org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+	}
+}
@@ -0,0 +1,74 @@
+package minesweeper;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The end of a lost game: flag every mine, show the loss and paint
+ * the whole board once, which is what used to be the loseGame sweep
+ * over every button. Painted into an offscreen image so it runs headless.
+ * 
+ * Needs assets/ in the working directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameOverBenchmark {
+
+	/** Square board edge length */
+	@Param({"9", "30", "100"})
+	public int size;
+
+	private Board board;
+	private BoardView view;
+	private BufferedImage image;
+	private Graphics2D g;
+	private int explosion;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		board = new Board(size, size);
+		MinePlacer.place(board, board.size() / 5, 42, 0);
+		for(explosion = 0; !board.isMine(explosion); explosion++);
+		view = new BoardView(board);
+		int pixels = size * BoardView.CELL_SIZE;
+		view.setSize(pixels, pixels);
+		image = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB);
+		g = image.createGraphics();
+	}
+
+	@Setup(Level.Invocation)
+	public void resetView(){
+		view.reset();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(){
+		g.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage loseGame(){
+		view.showLoss(explosion);
+		view.paint(g);
+		return image;
+	}
+}
@@ -0,0 +1,76 @@
+package minesweeper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The game stats file on a temp file, already holding a lot of games in
+ * runs of the three standard setups. summarize is the whole stats view,
+ * summarizeOne is just one setup's totals. Adding isn't measured, a
+ * second of adds would leave a file tens of gigabytes big.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStatsBenchmark {
+
+	private static final Difficulty[] SETUPS = {Difficulty.EASY, Difficulty.INT, Difficulty.HARD};
+
+	/** Games recorded before measuring */
+	@Param({"100000", "2000000"})
+	public int games;
+
+	private File statsFile;
+	private GameStats stats;
+	private SplittableRandom random = new SplittableRandom(42);
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException{
+		statsFile = File.createTempFile("gameStats", null);
+		stats = new GameStats(statsFile);
+		for(int i = 0; i < games; i++)
+			add(SETUPS[i / 20 % SETUPS.length]);
+	}
+
+	private void add(Difficulty setup) throws IOException{
+		byte outcome = random.nextInt(3) == 0 ? GameStats.WON : GameStats.LOST;
+		stats.add(System.currentTimeMillis(), setup.width, setup.height, setup.numMines, outcome,
+				random.nextInt(1000, 300000), random.nextInt(10, 200), random.nextInt(20), random.nextInt(5, 200));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(){
+		stats.close();
+		statsFile.delete();
+	}
+
+	@Benchmark
+	public List<GameStats.Summary> summarize(){
+		return stats.summarize();
+	}
+
+	@Benchmark
+	public GameStats.Summary summarizeOne(){
+		return stats.summarize(Difficulty.HARD.width, Difficulty.HARD.height, Difficulty.HARD.numMines);
+	}
+}
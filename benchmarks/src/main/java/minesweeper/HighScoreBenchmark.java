@@ -0,0 +1,101 @@
+package minesweeper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The high score store on temp files, with a pile of games already played
+ * across a few hundred board setups. load is startup, snapshot plus journal
+ * replay, add is a new game landing on its leaderboard and in the journal,
+ * top is looking a leaderboard up and compact is folding it all back into
+ * the snapshot.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HighScoreBenchmark {
+
+	private static final int CONFIGS = 500;
+
+	/** Games recorded before measuring */
+	@Param({"1000", "200000"})
+	public int games;
+
+	private File scoreFile;
+	private ScoreStore store;
+	private SplittableRandom random = new SplittableRandom(42);
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException{
+		//Written out as a snapshot directly, journaling every one of these
+		//would be an fsync apiece
+		scoreFile = File.createTempFile("hiScores", null);
+		Writer out = new OutputStreamWriter(new FileOutputStream(scoreFile), StandardCharsets.UTF_8);
+		try{
+			out.write("#0\n");
+			for (int i = 0; i < games; i++) {
+				int config = random.nextInt(CONFIGS);
+				out.write((10 + config)+",10,"+(config + 1)+","+random.nextLong(1000, 1000000)+",Player"+i+"\n");
+			}
+		}finally{
+			out.close();
+		}
+		store = new ScoreStore(scoreFile);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(){
+		store.close();
+		scoreFile.delete();
+		new File(scoreFile.getPath() + ".journal").delete();
+	}
+
+	@Benchmark
+	public ScoreStore load() throws IOException{
+		ScoreStore loaded = new ScoreStore(scoreFile);
+		loaded.close();
+		return loaded;
+	}
+
+	@Benchmark
+	public boolean add(){
+		int config = random.nextInt(CONFIGS);
+		return store.add(10 + config, 10, config + 1, "Player", random.nextLong(1000, 1000000), 50, 60);
+	}
+
+	@Benchmark
+	public List<Leaderboard.Score> top(){
+		int config = random.nextInt(CONFIGS);
+		return store.top(10 + config, 10, config + 1, 10);
+	}
+
+	@Benchmark
+	public ScoreStore compact() throws IOException{
+		store.compact();
+		return store;
+	}
+}
@@ -0,0 +1,46 @@
+package minesweeper;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.ImageIcon;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Icon lookups. cachedHit is what painting a cell costs normally,
+ * resize is a full rescale of the icon set, which is the old per-button
+ * setIcon scaling cost paid once per size change, now on a background
+ * thread while painting stretches the old set.
+ * 
+ * Needs assets/ in the working directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class IconScaleBenchmark {
+
+	private boolean flip;
+
+	@Benchmark
+	public ImageIcon cachedHit(){
+		return IconCache.get(IconCache.FLAG, 24, 24);
+	}
+
+	@Benchmark
+	public Object resize(){
+		flip = !flip;
+		int size = flip ? 24 : 25;
+		return new IconCache.ScaledSet(size, size);
+	}
+}
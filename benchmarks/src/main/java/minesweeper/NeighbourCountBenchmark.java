@@ -0,0 +1,48 @@
+package minesweeper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Redoing every number on a board from its mines, which is what placing
+ * mines, loading a game and the simulator all pay for. 10000 is the
+ * hundred million cell board, at about a fifth mines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class NeighbourCountBenchmark {
+
+	/** Square board edge length */
+	@Param({"30", "1000", "10000"})
+	public int size;
+
+	private Board board;
+
+	@Setup(Level.Trial)
+	public void placeMines(){
+		board = new Board(size, size);
+		MinePlacer.place(board, board.size() / 5, 42);
+	}
+
+	@Benchmark
+	public Board computeAdjacentMines(){
+		board.computeAdjacentMines();
+		return board;
+	}
+}
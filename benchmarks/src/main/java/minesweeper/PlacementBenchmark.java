@@ -0,0 +1,52 @@
+package minesweeper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mine placement on a fresh board, including the adjacency counts.
+ * Near-full densities are in here on purpose, that's where rejection
+ * sampling used to fall over.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlacementBenchmark {
+
+	/** Square board edge length */
+	@Param({"9", "30", "100", "1000"})
+	public int size;
+
+	@Param({"0.12", "0.2", "0.5", "0.99"})
+	public double density;
+
+	private int numMines;
+	private long seed;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		numMines = Math.min((int)(size * size * density), size * size - 1);
+	}
+
+	@Benchmark
+	public Board place(){
+		Board board = new Board(size, size);
+		MinePlacer.place(board, numMines, seed++, 0);
+		return board;
+	}
+}
@@ -0,0 +1,112 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Replays of solver played games. decode just walks the moves, parse
+ * reads one back from bytes and fastForward plays it onto a fresh board,
+ * mine placement included. Divide by the moves per replay printed at
+ * setup for moves a second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+
+	private static final int GAMES = 64;
+
+	@Param({"EASY", "HARD"})
+	public Difficulty level;
+
+	private Replay[] replays = new Replay[GAMES];
+	private byte[][] files = new byte[GAMES][];
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		SplittableRandom random = new SplittableRandom(42);
+		long moves = 0, bytes = 0;
+		for(int i = 0; i < GAMES; i++){
+			replays[i] = play(random);
+			files[i] = replays[i].toBytes();
+			moves += replays[i].moves();
+			bytes += files[i].length;
+		}
+		System.out.printf("%n%d moves, %d bytes per replay%n", moves / GAMES, bytes / GAMES);
+	}
+
+	/** Plays a game with the solver, guessing when it's stuck, and records it */
+	private Replay play(SplittableRandom random){
+		final Board board = new Board(level.width, level.height);
+		final Replay replay = new Replay(level.width, level.height, level.numMines);
+		long seed = random.nextLong();
+		int first = random.nextInt(board.size());
+		MinePlacer.place(board, level.numMines, seed, first);
+		replay.placed(seed, first);
+		final Solver solver = new Solver(board);
+		final boolean[] lost = new boolean[1];
+		final long[] clock = new long[1];
+		Solver.Moves moves = new Solver.Moves() {
+			@Override
+			public void makeMove(int cell) {
+				replay.record(Replay.REVEAL, cell, clock[0] += 400);
+				if(board.isMine(cell))
+					lost[0] = true;
+				else
+					solver.revealed(board.reveal(cell));
+			}
+			@Override
+			public void flag(int cell) {
+				replay.record(Replay.FLAG, cell, clock[0] += 250);
+				board.toggleFlag(cell);
+			}
+		};
+		moves.makeMove(first);
+		while(!lost[0] && !board.isCleared()){
+			solver.autoplay(moves);
+			if(lost[0] || board.isCleared())
+				break;
+			int guess = random.nextInt(board.size());
+			if(!board.isRevealed(guess) && !board.isFlagged(guess))
+				moves.makeMove(guess);
+		}
+		return replay;
+	}
+
+	@Benchmark
+	public long decode(){
+		Replay.Cursor moves = replays[next++ & (GAMES - 1)].cursor();
+		long sum = 0;
+		while(moves.next())
+			sum += moves.cell() + moves.delay();
+		return sum;
+	}
+
+	@Benchmark
+	public Replay parse() throws IOException{
+		return Replay.fromBytes(files[next++ & (GAMES - 1)]);
+	}
+
+	@Benchmark
+	public Replay.Result fastForward(){
+		return replays[next++ & (GAMES - 1)].fastForward();
+	}
+}
@@ -0,0 +1,58 @@
+package minesweeper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Flood fill from the corner of a board at a few sizes and densities.
+ * The board is placed once per trial and reset before every reveal, so
+ * this measures Board.reveal and nothing else. The 5000 board is past
+ * Board.PARALLEL_CELLS, so big cascades there take the parallel fill.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RevealBenchmark {
+
+	/** Square board edge length */
+	@Param({"9", "30", "100", "1000", "5000"})
+	public int size;
+
+	/** Fraction of cells holding mines, low means big cascades */
+	@Param({"0.0", "0.05", "0.2"})
+	public double density;
+
+	private Board board;
+
+	@Setup(Level.Trial)
+	public void placeMines(){
+		board = new Board(size, size);
+		int numMines = (int)(board.size() * density);
+		MinePlacer.place(board, numMines, 42, 0);
+	}
+
+	@Setup(Level.Invocation)
+	public void resetBoard(){
+		board.reset();
+	}
+
+	@Benchmark
+	public int[] reveal(){
+		return board.reveal(0);
+	}
+}
@@ -0,0 +1,74 @@
+package minesweeper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving and loading a half played game on a temp file. 4000 is 16 million
+ * cells, big enough that the planes go through a memory map. Loading
+ * includes redoing the numbers from the mines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SaveGameBenchmark {
+
+	/** Square board edge length */
+	@Param({"30", "1000", "4000"})
+	public int size;
+
+	private File file;
+	private SavedGame game;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException{
+		Board board = new Board(size, size);
+		MinePlacer.place(board, board.size() / 6, 42, 0);
+		Replay replay = new Replay(size, size, board.numMines());
+		replay.placed(42, 0);
+		//Open up the top half, more or less
+		for(int cell = 0; cell < board.size() / 2; cell += 97){
+			if(!board.isMine(cell)){
+				replay.record(Replay.REVEAL, cell, cell);
+				board.reveal(cell);
+			}
+		}
+		game = new SavedGame(board, replay, board.numMines(), 1000, true, false, false);
+		file = File.createTempFile("savedGame", null);
+		game.save(file);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(){
+		file.delete();
+	}
+
+	@Benchmark
+	public File save() throws IOException{
+		game.save(file);
+		return file;
+	}
+
+	@Benchmark
+	public SavedGame load() throws IOException{
+		return SavedGame.load(file);
+	}
+}
@@ -0,0 +1,48 @@
+package minesweeper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Working out a board's 3BV, which every board in the simulator and
+ * every pooled board pays for. 16x30 is expert, the others are custom
+ * boards at about a fifth mines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ThreeBVBenchmark {
+
+	/** Board as WxH */
+	@Param({"16x30", "1000x1000", "5000x5000"})
+	public String size;
+
+	private Board board;
+
+	@Setup(Level.Trial)
+	public void placeMines(){
+		String[] dims = size.split("x");
+		board = new Board(Integer.parseInt(dims[0]), Integer.parseInt(dims[1]));
+		MinePlacer.place(board, board.width() == 16 ? 99 : board.size() / 5, 42);
+	}
+
+	@Benchmark
+	public int threeBV(){
+		return BoardAnalyzer.threeBV(board);
+	}
+}
@@ -0,0 +1,554 @@
+package minesweeper;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Headless game state for one minesweeper board. There's no Swing in here,
+ * just packed bit planes for mines, revealed cells and flags, so a board with
+ * millions of cells costs a few bits per cell instead of a JButton each.
+ *
+ * Cells are addressed by a single index, x * height + y, which is the same
+ * order the view lays its buttons out in. Use index(x, y), xOf(cell) and
+ * yOf(cell) to convert between the two.
+ */
+public class Board {
+
+	//Boards from PARALLEL_CELLS up hand a fill over to parallelReveal once
+	//it has HANDOFF cells queued, smaller fills never pay for the threads
+	static final int PARALLEL_CELLS = 1 << 22, HANDOFF = 1 << 14;
+	//Smallest tile for the parallel fill, in cells, a multiple of 64
+	private static final int MIN_TILE = 1 << 16;
+	//Atomic access to single words of a bit plane, for the parallel fill
+	private static final VarHandle WORD = MethodHandles.arrayElementVarHandle(long[].class);
+
+	private final int width, height, size;
+	//One bit per cell, 64 cells per word
+	private final long[] mines, revealed, flagged;
+	//Number shown on each cell, filled in by computeAdjacentMines()
+	private final byte[] adjacent;
+	//remainingLocations is the number of unrevealed cells, which allows
+	//checking the win condition without scanning the board
+	private int numMines, flags, remainingLocations;
+	//Seed the mines were placed from, see MinePlacer
+	private long seed;
+	//See threeBV(), -1 until it's been worked out for these mines
+	private int threeBV = -1;
+
+	/**Empty board with no mines on it
+	 *
+	 * @param width Number of cells along x
+	 * @param height Number of cells along y
+	 */
+	public Board(int width, int height){
+		this.width = width;
+		this.height = height;
+		this.size = width * height;
+		int words = (size + 63) >>> 6;
+		mines = new long[words];
+		revealed = new long[words];
+		flagged = new long[words];
+		adjacent = new byte[size];
+		remainingLocations = size;
+	}
+
+	/** See mirror() */
+	private Board(Board other){
+		width = other.width;
+		height = other.height;
+		size = other.size;
+		mines = other.mines;
+		adjacent = other.adjacent;
+		revealed = other.revealed.clone();
+		flagged = other.flagged.clone();
+		numMines = other.numMines;
+		flags = other.flags;
+		remainingLocations = other.remainingLocations;
+		seed = other.seed;
+		threeBV = other.threeBV;
+	}
+
+	/**
+	 * A second board for another thread to play on, with its own copy of
+	 * what's revealed and flagged. The mines and numbers are shared rather
+	 * than copied, so neither board can have mines placed on it after this.
+	 */
+	public Board mirror(){
+		return new Board(this);
+	}
+
+	public int width(){ return width; }
+	public int height(){ return height; }
+	/** @return Total number of cells */
+	public int size(){ return size; }
+	public int numMines(){ return numMines; }
+	public int flags(){ return flags; }
+	/** @return Number of cells that haven't been revealed yet */
+	public int remainingLocations(){ return remainingLocations; }
+	public long seed(){ return seed; }
+	public void setSeed(long seed){ this.seed = seed; }
+
+	/**
+	 * @return Fewest clicks that clear the board, see BoardAnalyzer. Worked
+	 * out the first time it's asked for, then kept with the board.
+	 */
+	public int threeBV(){
+		if(threeBV < 0)
+			threeBV = BoardAnalyzer.threeBV(this);
+		return threeBV;
+	}
+
+	public int index(int x, int y){ return x * height + y; }
+	public int xOf(int cell){ return cell / height; }
+	public int yOf(int cell){ return cell % height; }
+
+	/**
+	 * @param pX potential x location to check for validity
+	 * @param pY potential y location to check for validity
+	 *
+	 * @return True if location is valid in the grid
+	 */
+	public boolean validLocation(int pX, int pY) {
+		return !(pX < 0 || pX >= width || pY < 0 || pY >= height);
+	}
+
+	public boolean isMine(int cell){ return get(mines, cell); }
+	public boolean isRevealed(int cell){ return get(revealed, cell); }
+	public boolean isFlagged(int cell){ return get(flagged, cell); }
+
+	/** @return True once every safe cell has been revealed */
+	public boolean isCleared(){
+		return remainingLocations == numMines;
+	}
+
+	/** Sets this cell as a known mine. Does nothing if it already is one.
+	 * Call computeAdjacentMines() once all the mines are down. */
+	public void plantMine(int cell){
+		if(!get(mines, cell)){
+			set(mines, cell);
+			numMines++;
+		}
+	}
+
+	/**
+	 * @return Number of mines in the 3x3 block around the cell, which
+	 * is the number shown once it's revealed
+	 */
+	public int adjacentMines(int cell){
+		return adjacent[cell];
+	}
+
+	/**
+	 * Builds the neighbour counts for the whole board from the mine plane,
+	 * 64 cells at a time, see NeighbourCounts. Has to run after mine
+	 * placement and before anything is revealed, everything else just
+	 * reads the counts.
+	 */
+	public void computeAdjacentMines(){
+		NeighbourCounts.compute(mines, width, height, adjacent);
+		threeBV = -1;
+	}
+
+	/**Reveals a cell, and if it has no neighbouring mines, flood fills
+	 * all adjacent and diagonal cells to clear out the empty lot.
+	 * Flagged cells, mines and already revealed cells are left alone,
+	 * so the caller has to handle a click on a mine itself.
+	 *
+	 * The fill runs off an explicit work queue rather than recursion, so
+	 * opening a huge empty region can't overflow the stack. Cells are
+	 * marked revealed as they're queued, which means each one is visited
+	 * exactly once, and the queue itself doubles as the result.
+	 *
+	 * On boards of PARALLEL_CELLS or more a fill that keeps growing gets
+	 * finished by parallelReveal. The same cells come out revealed either
+	 * way, only the order of the returned cells differs.
+	 *
+	 * @param cell Cell to reveal
+	 * @return Every cell newly revealed by this call, in the order opened
+	 */
+	public int[] reveal(int cell){
+		if(isFlagged(cell) || isMine(cell) || isRevealed(cell))
+			return new int[0];
+		int[] queue = new int[16];
+		int head = 0, tail = 0;
+		set(revealed, cell);
+		queue[tail++] = cell;
+		while(head < tail){
+			if(tail - head >= HANDOFF && size >= PARALLEL_CELLS)
+				return parallelReveal(queue, head, tail);
+			int next = queue[head++];
+			if(adjacentMines(next) != 0)
+				continue;
+			//Clamp the 3x3 block once instead of checking every neighbour
+			int x = xOf(next), y = yOf(next);
+			int x0 = Math.max(x - 1, 0), x1 = Math.min(x + 1, width - 1);
+			int y0 = Math.max(y - 1, 0), y1 = Math.min(y + 1, height - 1);
+			for (int pX = x0; pX <= x1; pX++) {
+				for (int pY = y0; pY <= y1; pY++) {
+					//Neighbours of a zero are never mines, no need to check
+					int n = index(pX, pY);
+					if(!isRevealed(n) && !isFlagged(n)){
+						set(revealed, n);
+						if(tail == queue.length)
+							queue = Arrays.copyOf(queue, tail * 2);
+						queue[tail++] = n;
+					}
+				}
+			}
+		}
+		remainingLocations -= tail;
+		return tail == queue.length ? queue : Arrays.copyOf(queue, tail);
+	}
+
+	/**
+	 * Finishes a flood fill on the common ForkJoinPool. The board is cut
+	 * into tiles of whole words, and the fill goes in rounds: each tile
+	 * with cells waiting fills as far as it can inside itself, and cells
+	 * it opens in other tiles are handed over to them for the next round.
+	 * Cells are claimed with an atomic or on the revealed plane, so
+	 * whichever tile gets to a cell first opens it and nobody opens it
+	 * twice. That makes the count exact without any locking, and the cells
+	 * opened are the same ones the serial fill would have opened.
+	 *
+	 * @param queue The serial fill's queue, everything in it already revealed
+	 * @param head First queued cell that hasn't been filled from yet
+	 * @param tail End of the queue
+	 * @return Every cell revealed by the whole fill, serial part first
+	 */
+	private int[] parallelReveal(int[] queue, int head, int tail){
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int tile = Math.max(MIN_TILE, (size / (pool.getParallelism() * 8) + 63) & ~63);
+		int tiles = (size + tile - 1) / tile;
+		List<int[]> opened = new ArrayList<int[]>();
+		opened.add(Arrays.copyOf(queue, tail));
+		long total = tail;
+		int[][] waiting = new int[tiles][];
+		int[] waitingSize = new int[tiles];
+		handOver(queue, head, tail, tile, waiting, waitingSize);
+		List<Callable<Fill>> round = new ArrayList<Callable<Fill>>();
+		while(true){
+			round.clear();
+			for(int t = 0; t < tiles; t++){
+				if(waitingSize[t] == 0)
+					continue;
+				final Fill fill = new Fill(t * tile, (int)Math.min((long)t * tile + tile, size),
+						Arrays.copyOf(waiting[t], waitingSize[t]));
+				round.add(new Callable<Fill>() {
+					@Override
+					public Fill call() {
+						fill.run();
+						return fill;
+					}
+				});
+				waitingSize[t] = 0;
+			}
+			if(round.isEmpty())
+				break;
+			for(Fill fill : invoke(pool, round)){
+				opened.add(Arrays.copyOfRange(fill.queue, fill.start, fill.tail));
+				opened.add(Arrays.copyOf(fill.crossing, fill.crossed));
+				total += fill.tail - fill.start + fill.crossed;
+				handOver(fill.crossing, 0, fill.crossed, tile, waiting, waitingSize);
+			}
+		}
+		remainingLocations -= total;
+		int[] result = new int[(int)total];
+		int at = 0;
+		for(int[] part : opened){
+			System.arraycopy(part, 0, result, at, part.length);
+			at += part.length;
+		}
+		return result;
+	}
+
+	/** Runs a round of fills, the last one on this thread if it's alone */
+	private static List<Fill> invoke(ForkJoinPool pool, List<Callable<Fill>> round){
+		List<Fill> done = new ArrayList<Fill>(round.size());
+		try{
+			if(round.size() == 1){
+				done.add(round.get(0).call());
+			}else{
+				for(Future<Fill> result : pool.invokeAll(round))
+					done.add(result.get());
+			}
+		}catch(ExecutionException e){
+			throw new IllegalStateException("Parallel reveal failed", e.getCause());
+		}catch(Exception e){
+			throw new IllegalStateException("Parallel reveal failed", e);
+		}
+		return done;
+	}
+
+	/** Sorts revealed cells into the waiting lists of the tiles they're in */
+	private static void handOver(int[] cells, int from, int to, int tile, int[][] waiting, int[] waitingSize){
+		for(int i = from; i < to; i++){
+			int t = cells[i] / tile;
+			if(waiting[t] == null)
+				waiting[t] = new int[64];
+			else if(waitingSize[t] == waiting[t].length)
+				waiting[t] = Arrays.copyOf(waiting[t], waitingSize[t] * 2);
+			waiting[t][waitingSize[t]++] = cells[i];
+		}
+	}
+
+	/**
+	 * One tile's part of a round of parallelReveal. Fills from cells that
+	 * are already revealed, the same way reveal does, but only follows
+	 * cells inside the tile. Ones outside get claimed and left for their
+	 * own tile.
+	 */
+	private class Fill {
+		final int low, high;
+		//Cells from start on were opened by this fill, the ones before were handed in
+		int[] queue;
+		final int start;
+		int tail;
+		int[] crossing = new int[16];
+		int crossed;
+
+		Fill(int low, int high, int[] waiting){
+			this.low = low;
+			this.high = high;
+			this.queue = waiting;
+			this.start = this.tail = waiting.length;
+		}
+
+		void run(){
+			for(int head = 0; head < tail; head++){
+				int next = queue[head];
+				if(adjacentMines(next) != 0)
+					continue;
+				int x = xOf(next), y = yOf(next);
+				int x0 = Math.max(x - 1, 0), x1 = Math.min(x + 1, width - 1);
+				int y0 = Math.max(y - 1, 0), y1 = Math.min(y + 1, height - 1);
+				for (int pX = x0; pX <= x1; pX++) {
+					for (int pY = y0; pY <= y1; pY++) {
+						int n = index(pX, pY);
+						if(isFlagged(n) || !claim(n))
+							continue;
+						if(n >= low && n < high){
+							if(tail == queue.length)
+								queue = Arrays.copyOf(queue, Math.max(tail * 2, 16));
+							queue[tail++] = n;
+						}else{
+							if(crossed == crossing.length)
+								crossing = Arrays.copyOf(crossing, crossed * 2);
+							crossing[crossed++] = n;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Atomically marks a cell revealed, for fills running side by side
+	 *
+	 * @return True if this call revealed it, false if it already was
+	 */
+	private boolean claim(int cell){
+		int word = cell >>> 6;
+		long bit = 1L << cell;
+		if(((long)WORD.getOpaque(revealed, word) & bit) != 0)
+			return false;
+		return ((long)WORD.getAndBitwiseOr(revealed, word, bit) & bit) == 0;
+	}
+
+	/**
+	 * Marks cells revealed without any flood fill, for keeping a mirror()
+	 * in step with reveals done on the other board
+	 *
+	 * @param cells Cells revealed on the other board, as its reveal returned them
+	 */
+	public void markRevealed(int[] cells){
+		for(int cell : cells){
+			if(!get(revealed, cell)){
+				set(revealed, cell);
+				remainingLocations--;
+			}
+		}
+	}
+
+	/**
+	 * A chord is a click on a revealed number with exactly that many flags
+	 * around it, which reveals every other hidden neighbour at once.
+	 *
+	 * @return The first mine a chord on the cell would hit, or -1 if it's
+	 * safe or isn't a chord at all
+	 */
+	public int chordMine(int cell){
+		int[] targets = chordTargets(cell);
+		for(int target : targets)
+			if(isMine(target))
+				return target;
+		return -1;
+	}
+
+	/**
+	 * Reveals every hidden, unflagged neighbour of a chorded number, see
+	 * chordMine(). Mines are left alone like in reveal(), so check first.
+	 *
+	 * @return Every cell newly revealed, empty if it isn't a chord
+	 */
+	public int[] chord(int cell){
+		int[] opened = new int[0];
+		for(int target : chordTargets(cell)){
+			int[] more = reveal(target);
+			if(more.length == 0)
+				continue;
+			int at = opened.length;
+			opened = Arrays.copyOf(opened, at + more.length);
+			System.arraycopy(more, 0, opened, at, more.length);
+		}
+		return opened;
+	}
+
+	/** @return True if chording the cell would reveal anything, mine or not */
+	public boolean canChord(int cell){
+		return chordTargets(cell).length > 0;
+	}
+
+	/** @return Hidden unflagged neighbours if the cell can be chorded, otherwise none */
+	private int[] chordTargets(int cell){
+		if(!isRevealed(cell) || adjacentMines(cell) == 0)
+			return new int[0];
+		int x = xOf(cell), y = yOf(cell), flagsAround = 0, count = 0;
+		int[] targets = new int[8];
+		for (int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, width - 1); pX++) {
+			for (int pY = Math.max(y - 1, 0); pY <= Math.min(y + 1, height - 1); pY++) {
+				int n = index(pX, pY);
+				if(isFlagged(n))
+					flagsAround++;
+				else if(!isRevealed(n))
+					targets[count++] = n;
+			}
+		}
+		return flagsAround == adjacentMines(cell) ? Arrays.copyOf(targets, count) : new int[0];
+	}
+
+	/**Flags or deflags an unrevealed cell
+	 *
+	 * @return True if the cell is flagged after the call
+	 */
+	public boolean toggleFlag(int cell){
+		if(isRevealed(cell))
+			return false;
+		if(get(flagged, cell)){
+			clear(flagged, cell);
+			flags--;
+			return false;
+		}
+		set(flagged, cell);
+		flags++;
+		return true;
+	}
+
+	/**
+	 * Clean reset of the current board, keeps the mines but
+	 * hides every cell and drops all flags
+	 */
+	public void reset(){
+		Arrays.fill(revealed, 0L);
+		Arrays.fill(flagged, 0L);
+		flags = 0;
+		remainingLocations = size;
+	}
+
+	/** @return What's revealed right now, as a version to keep, see BoardHistory */
+	PersistentBits revealedBits(){
+		return remainingLocations == size ? PersistentBits.empty(size) : PersistentBits.copyOf(revealed);
+	}
+
+	/** @return What's flagged right now, as a version to keep, see BoardHistory */
+	PersistentBits flaggedBits(){
+		return flags == 0 ? PersistentBits.empty(size) : PersistentBits.copyOf(flagged);
+	}
+
+	/**
+	 * Puts what's revealed and flagged back how another version has it,
+	 * only touching the words that differ between the two.
+	 *
+	 * @param from Version the board's at now
+	 * @param to Version to go to
+	 */
+	void restore(BoardHistory.Version from, BoardHistory.Version to){
+		from.revealed.diff(to.revealed, new PersistentBits.Changes() {
+			@Override
+			public void word(int index, long from, long to) {
+				remainingLocations -= Long.bitCount(to) - Long.bitCount(Board.this.revealed[index]);
+				Board.this.revealed[index] = to;
+			}
+		});
+		from.flagged.diff(to.flagged, new PersistentBits.Changes() {
+			@Override
+			public void word(int index, long from, long to) {
+				flags += Long.bitCount(to) - Long.bitCount(Board.this.flagged[index]);
+				Board.this.flagged[index] = to;
+			}
+		});
+	}
+
+	/** @return Longs in each bit plane, 64 cells to a long */
+	public int planeWords(){
+		return mines.length;
+	}
+
+	/**
+	 * Bulk copies the mine, revealed and flagged planes out, in that
+	 * order, planeWords() longs each. Used for saving games.
+	 */
+	public void writePlanes(LongBuffer out){
+		out.put(mines);
+		out.put(revealed);
+		out.put(flagged);
+	}
+
+	/**
+	 * Reads the planes back in from what writePlanes wrote, then recounts
+	 * the mines, flags and hidden cells and redoes the numbers from them.
+	 * Only for a board that's just been built.
+	 *
+	 * @throws IllegalArgumentException If a plane has bits past the last cell
+	 */
+	public void readPlanes(LongBuffer in){
+		in.get(mines);
+		in.get(revealed);
+		in.get(flagged);
+		long spare = (size & 63) == 0 ? 0 : -1L << size;
+		if(((mines[mines.length - 1] | revealed[mines.length - 1] | flagged[mines.length - 1]) & spare) != 0)
+			throw new IllegalArgumentException("Bits set past the end of the board");
+		numMines = count(mines);
+		flags = count(flagged);
+		remainingLocations = size - count(revealed);
+		computeAdjacentMines();
+	}
+
+	//============Bit plane helpers================
+
+	private static int count(long[] plane){
+		int count = 0;
+		for(long word : plane)
+			count += Long.bitCount(word);
+		return count;
+	}
+
+	private static boolean get(long[] plane, int cell){
+		return (plane[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	private static void set(long[] plane, int cell){
+		plane[cell >>> 6] |= 1L << cell;
+	}
+
+	private static void clear(long[] plane, int cell){
+		plane[cell >>> 6] &= ~(1L << cell);
+	}
+}
@@ -0,0 +1,105 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * How hard a board is, as opposed to how fast someone happened to clear it.
+ *
+ * 3BV (Bechtel's Board Benchmark Value) is the fewest left clicks that
+ * clear a board: one per opening, that's a connected patch of zeros, plus
+ * one for every number that doesn't touch an opening, since those are the
+ * only cells no opening reveals. Time over 3BV gives 3BV/s, which lets
+ * scores on lucky and nasty boards be compared.
+ *
+ * Openings are found with union-find in one pass over the board. Zeros
+ * are labelled as they're reached and joined to any labelled zero already
+ * passed next to them, and the openings are the labels left as roots at
+ * the end. Cell labels only need keeping for the row before and the row
+ * being done, so memory goes with the number of labels, not the size of
+ * the board.
+ */
+public class BoardAnalyzer {
+
+	/**
+	 * @param board Board with its mines placed, reveals don't matter
+	 * @return The board's 3BV
+	 */
+	public static int threeBV(Board board){
+		int width = board.width(), height = board.height();
+		//Label + 1 of each zero in the last row and this one, 0 if not a zero
+		int[] last = new int[height], row = new int[height];
+		int[] parent = new int[64];
+		int labels = 0, isolated = 0;
+		for(int x = 0; x < width; x++){
+			for(int y = 0; y < height; y++){
+				int cell = board.index(x, y);
+				if(board.adjacentMines(cell) != 0){
+					row[y] = 0;
+					if(!board.isMine(cell) && !touchesZero(board, cell, x, y))
+						isolated++;
+					continue;
+				}
+				//Neighbours already passed, up left, up, up right and left
+				int label = join(parent, 0, y > 0 ? last[y - 1] : 0);
+				label = join(parent, label, last[y]);
+				label = join(parent, label, y + 1 < height ? last[y + 1] : 0);
+				label = join(parent, label, y > 0 ? row[y - 1] : 0);
+				if(label == 0){
+					if(labels == parent.length)
+						parent = Arrays.copyOf(parent, labels * 2);
+					parent[labels] = labels;
+					label = ++labels;
+				}
+				row[y] = label;
+			}
+			int[] spare = last;
+			last = row;
+			row = spare;
+		}
+		int openings = 0;
+		for(int i = 0; i < labels; i++)
+			if(parent[i] == i)
+				openings++;
+		return openings + isolated;
+	}
+
+	/** @return True if any of the cell's neighbours is a zero */
+	private static boolean touchesZero(Board board, int cell, int x, int y){
+		int height = board.height();
+		boolean up = y > 0, down = y + 1 < height;
+		for(int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, board.width() - 1); pX++){
+			int column = cell + (pX - x) * height;
+			if(board.adjacentMines(column) == 0 || up && board.adjacentMines(column - 1) == 0
+					|| down && board.adjacentMines(column + 1) == 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param label Label + 1 picked for the cell so far, 0 for none yet
+	 * @param neighbour Label + 1 of a neighbour, 0 if it's not a zero
+	 * @return Label + 1 for the cell, joined up with the neighbour's
+	 */
+	private static int join(int[] parent, int label, int neighbour){
+		if(neighbour == 0)
+			return label;
+		if(label == 0)
+			return neighbour;
+		int a = find(parent, label - 1), b = find(parent, neighbour - 1);
+		//Older label wins, keeps the trees shallow enough with halving
+		if(a < b)
+			parent[b] = a;
+		else if(b < a)
+			parent[a] = b;
+		return label;
+	}
+
+	private static int find(int[] parent, int label){
+		while(parent[label] != label){
+			parent[label] = parent[parent[label]];
+			label = parent[label];
+		}
+		return label;
+	}
+}
@@ -0,0 +1,112 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every point a game has been at, for undo and redo. Each version keeps
+ * what was revealed and flagged as PersistentBits, sharing everything the
+ * move didn't touch with the version before it, so a move costs memory
+ * for the cells it changed rather than for the whole board. Going back or
+ * forward only rewrites the words that differ, see Board.restore(), so
+ * it's just as quick a thousand moves back on a huge board.
+ *
+ * Moves that didn't change anything don't get a version. Neither does
+ * losing, a mine doesn't change what's revealed, so undoing a loss just
+ * means carrying on from the current version.
+ */
+public class BoardHistory {
+
+	/** One point in the game. Never changed after it's made. */
+	public static class Version {
+		final PersistentBits revealed, flagged;
+		//Replay moves up to and including the one that got here
+		public final int moves;
+		//Move that got here, for putting back in the replay on a redo
+		public final int action, cell;
+
+		Version(PersistentBits revealed, PersistentBits flagged, int moves, int action, int cell){
+			this.revealed = revealed;
+			this.flagged = flagged;
+			this.moves = moves;
+			this.action = action;
+			this.cell = cell;
+		}
+	}
+
+	private final List<Version> versions = new ArrayList<Version>();
+	//Version the board's at, anything after it can be redone
+	private int current;
+
+	/**
+	 * Starts with the board as it is now
+	 *
+	 * @param moves Replay moves so far
+	 */
+	public BoardHistory(Board board, int moves){
+		versions.add(new Version(board.revealedBits(), board.flaggedBits(), moves, Replay.RESET, 0));
+	}
+
+	/** @return The version the board's at */
+	public Version current(){
+		return versions.get(current);
+	}
+
+	public boolean canUndo(){
+		return current > 0;
+	}
+
+	public boolean canRedo(){
+		return current + 1 < versions.size();
+	}
+
+	/**
+	 * A move opened some cells. Anything that could've been redone is
+	 * gone now.
+	 *
+	 * @param opened Cells it revealed
+	 * @param moves Replay moves up to and including this one
+	 */
+	public void opened(int action, int cell, int[] opened, int moves){
+		Version last = current();
+		add(new Version(last.revealed.with(opened), last.flagged, moves, action, cell));
+	}
+
+	/**
+	 * A flag went on or came off
+	 *
+	 * @param moves Replay moves up to and including this one
+	 */
+	public void flagged(int cell, int moves){
+		Version last = current();
+		add(new Version(last.revealed, last.flagged.flip(cell), moves, Replay.FLAG, cell));
+	}
+
+	private void add(Version version){
+		versions.subList(current + 1, versions.size()).clear();
+		versions.add(version);
+		current++;
+	}
+
+	/** Steps back a version, only call if canUndo(). @return The version now */
+	public Version undo(){
+		return versions.get(--current);
+	}
+
+	/**
+	 * Steps forward a version, only call if canRedo(). The move that got
+	 * there goes back in the replay, so the version takes the replay's new
+	 * count, and an undo after it cuts the replay back to the right place.
+	 *
+	 * @param moves Replay moves with the redone one put back
+	 * @return The version now
+	 */
+	public Version redo(int moves){
+		Version next = versions.get(++current);
+		if(next.moves != moves){
+			next = new Version(next.revealed, next.flagged, moves, next.action, next.cell);
+			versions.set(current, next);
+		}
+		return next;
+	}
+}
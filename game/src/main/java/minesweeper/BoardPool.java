@@ -0,0 +1,138 @@
+package minesweeper;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Ready mined boards for the standard difficulties, so starting a new game
+ * just hands one over instead of placing mines on the EDT. A low priority
+ * daemon thread keeps up to DEPTH boards of each difficulty waiting, and
+ * tops them back up whenever one's taken, which in practice is while the
+ * player's thinking.
+ *
+ * Each difficulty draws its seeds from its own split of the random passed
+ * in, and boards are built and handed out strictly in seed order, whether
+ * they came from the pool or had to be built on the spot. So a fixed
+ * -Dminesweeper.seed still gives the same boards every run.
+ *
+ * The boardPool.hits and boardPool.misses counters say how often a board
+ * was waiting or not, they show up in Metrics.report().
+ */
+public class BoardPool {
+
+	public static final int DEPTH = 4;
+	private static final Metrics.Counter HITS = Metrics.counter("boardPool.hits"),
+			MISSES = Metrics.counter("boardPool.misses");
+
+	/** Waiting boards and the seeds for one difficulty, locked on itself */
+	private static class Supply {
+		final Difficulty difficulty;
+		final SplittableRandom seeds;
+		final ArrayDeque<Board> ready = new ArrayDeque<Board>(DEPTH);
+
+		Supply(Difficulty difficulty, SplittableRandom seeds){
+			this.difficulty = difficulty;
+			this.seeds = seeds;
+		}
+
+		/** Builds the next board in seed order, only call holding the lock */
+		Board build(){
+			Board board = new Board(difficulty.width, difficulty.height);
+			MinePlacer.placeTimed(board, difficulty.numMines, seeds.nextLong(), -1);
+			//Gets the 3BV done here too, rather than when the score's saved
+			board.threeBV();
+			return board;
+		}
+	}
+
+	private final Map<Difficulty, Supply> supplies = new EnumMap<Difficulty, Supply>(Difficulty.class);
+	private final Thread filler;
+	private boolean closed;
+
+	/**
+	 * Starts filling straight away
+	 *
+	 * @param seeds Where board seeds come from, split once per difficulty
+	 */
+	public BoardPool(SplittableRandom seeds){
+		for(Difficulty d : new Difficulty[]{Difficulty.EASY, Difficulty.INT, Difficulty.HARD})
+			supplies.put(d, new Supply(d, seeds.split()));
+		filler = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				fill();
+			}
+		}, "board-pool");
+		filler.setDaemon(true);
+		filler.setPriority(Thread.MIN_PRIORITY);
+		filler.start();
+	}
+
+	/**
+	 * @return A mined board for the difficulty, built on the spot if none
+	 * were waiting, or null if it's not one the pool keeps
+	 */
+	public Board take(Difficulty d){
+		Supply supply = supplies.get(d);
+		if(supply == null)
+			return null;
+		Board board;
+		boolean hit;
+		synchronized(supply){
+			board = supply.ready.poll();
+			hit = board != null;
+			if(!hit)
+				board = supply.build();
+		}
+		if(hit)
+			HITS.increment();
+		else
+			MISSES.increment();
+		//Wakes the filler to top it back up
+		synchronized(this){
+			notifyAll();
+		}
+		return board;
+	}
+
+	/** Stops the filler, anything waiting gets dropped */
+	public synchronized void close(){
+		closed = true;
+		notifyAll();
+	}
+
+	/** Filler thread, builds one board at a time for whichever supply is short */
+	private void fill(){
+		while(true){
+			Supply needed = null;
+			synchronized(this){
+				while(!closed && (needed = shortSupply()) == null){
+					try{
+						wait();
+					}catch(InterruptedException e){
+						return;
+					}
+				}
+				if(closed)
+					return;
+			}
+			synchronized(needed){
+				if(needed.ready.size() < DEPTH)
+					needed.ready.add(needed.build());
+			}
+		}
+	}
+
+	/** @return A supply with room for another board, or null if they're all full */
+	private Supply shortSupply(){
+		for(Supply supply : supplies.values()){
+			synchronized(supply){
+				if(supply.ready.size() < DEPTH)
+					return supply;
+			}
+		}
+		return null;
+	}
+}
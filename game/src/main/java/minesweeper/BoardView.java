@@ -0,0 +1,353 @@
+package minesweeper;
+
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+
+import javax.swing.ImageIcon;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+
+/**
+ * Paints a whole board as one component, straight from the Board model.
+ * There's no component per cell, so layout is free and painting only
+ * touches the cells inside the clip, which means a million cell board
+ * costs about the same to repaint as a small one.
+ *
+ * Cells keep the old button grid orientation, x runs down the rows and
+ * y runs across the columns. Small boards stretch to fill the window,
+ * once cells would get smaller than MIN_CELL_SIZE the board scrolls.
+ */
+@SuppressWarnings("serial")
+public class BoardView extends JComponent implements Scrollable {
+
+	public static final int CELL_SIZE = 24, MIN_CELL_SIZE = 12;
+	private static final int MAX_VIEWPORT = 640;
+	private static final Metrics.Histogram CLICK_TO_PAINT = Metrics.histogram("clickToPaint");
+	private final Color disabledColor = Color.DARK_GRAY, enabledColor = Color.LIGHT_GRAY;
+
+	//Swapped out by setModel when a new game starts
+	private Board model;
+	//Game over display. exploded is the mine that was clicked, -1 on giving up
+	private boolean lost, won;
+	private int exploded = -1;
+	//Cell picked out by a hint, -1 for none
+	private int hint = -1;
+	private final Color hintColor = Color.YELLOW;
+	//Mine odds per cell from ProbabilityEngine, null when the overlay is
+	//off. Estimated ones get a ~ in front
+	private ProbabilityEngine.Odds odds;
+	//System.nanoTime() of a click waiting for its change to come through,
+	//and of one whose change is waiting to be painted, 0 for none
+	private long clicked, changed;
+
+	/**
+	 * @param model Board to draw, the view never changes it
+	 */
+	public BoardView(Board model){
+		this.model = model;
+		setOpaque(true);
+		//Icons are shared at one cell size, so rescale them when that changes
+		addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				IconCache.rescale(cellWidth(), cellHeight(), new Runnable() {
+					@Override
+					public void run() {
+						repaint();
+					}
+				});
+			}
+		});
+	}
+
+	/*============ GAME STATE DISPLAY ============*/
+
+	/**
+	 * Switches to another board for a new game, clearing the game over
+	 * display, hint and odds. Same sized boards just repaint, there's
+	 * only a layout pass when the size changes.
+	 */
+	public void setModel(Board model){
+		boolean resized = model.width() != this.model.width() || model.height() != this.model.height();
+		this.model = model;
+		lost = won = false;
+		exploded = hint = -1;
+		odds = null;
+		if(resized)
+			revalidate();
+		repaint();
+	}
+
+	/** Back to normal play, used when the game gets restarted */
+	public void reset(){
+		lost = won = false;
+		exploded = hint = -1;
+		repaint();
+	}
+
+	/**
+	 * Outlines a cell as a hint, replacing any hint already showing
+	 *
+	 * @param cell Cell to point out, or -1 to just clear the old hint
+	 */
+	public void showHint(int cell){
+		if(hint >= 0)
+			repaintCell(hint);
+		hint = cell;
+		if(hint >= 0)
+			repaintCell(hint);
+	}
+
+	/**
+	 * Shows the whole board after losing, every mine and number,
+	 * with wrongly flagged cells marked
+	 *
+	 * @param explosion Mine that was clicked, or -1 if they gave up
+	 */
+	public void showLoss(int explosion){
+		clickChanged();
+		lost = true;
+		exploded = explosion;
+		repaint();
+	}
+
+	/** Shows the mines after winning, flagged ones keep their flag */
+	public void showWin(){
+		clickChanged();
+		won = true;
+		repaint();
+	}
+
+	/**
+	 * Tints every hidden cell by its chance of being a mine, green for
+	 * safe through red for certain, with the percentage on top if it fits
+	 *
+	 * @param odds Odds per cell, or null to turn the overlay off
+	 */
+	public void showOdds(ProbabilityEngine.Odds odds){
+		this.odds = odds;
+		repaint();
+	}
+
+	/** @return True once the board has been shown as won or lost */
+	public boolean isGameOver(){
+		return lost || won;
+	}
+
+	/** Repaints just the one cell */
+	public void repaintCell(int cell){
+		clickChanged();
+		repaint(cellBounds(model.xOf(cell), model.yOf(cell)));
+	}
+
+	/** Repaints the bounding box of a batch of cells, like a reveal */
+	public void repaintCells(int[] cells){
+		if(cells.length == 0)
+			return;
+		clickChanged();
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+		for(int cell : cells){
+			int x = model.xOf(cell), y = model.yOf(cell);
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+		repaint(cellBounds(minX, minY).union(cellBounds(maxX, maxY)));
+	}
+
+	/**
+	 * Starts timing a click, up to the end of the paint that shows what
+	 * it changed. A click that doesn't change anything never gets timed.
+	 *
+	 * @param nanos System.nanoTime() of the click
+	 */
+	public void clicked(long nanos){
+		clicked = nanos;
+	}
+
+	/** The click's change is in, so the next paint is the one that shows it */
+	private void clickChanged(){
+		if(clicked != 0){
+			changed = clicked;
+			clicked = 0;
+		}
+	}
+
+	/*============ GEOMETRY ============*/
+
+	/**
+	 * @param p Point in this component's coordinates, like a mouse event's
+	 * @return The cell under that point, or -1 if it's off the board
+	 */
+	public int cellAt(Point p){
+		if(p.x < 0 || p.y < 0 || p.x >= getWidth() || p.y >= getHeight())
+			return -1;
+		return model.index(rowAt(p.y), columnAt(p.x));
+	}
+
+	private int rows(){ return model.width(); }
+	private int columns(){ return model.height(); }
+
+	private int rowAt(int py){
+		return (int)((long)py * rows() / getHeight());
+	}
+
+	private int columnAt(int px){
+		return (int)((long)px * columns() / getWidth());
+	}
+
+	private int rowTop(int x){
+		return (int)((long)x * getHeight() / rows());
+	}
+
+	private int columnLeft(int y){
+		return (int)((long)y * getWidth() / columns());
+	}
+
+	private Rectangle cellBounds(int x, int y){
+		int left = columnLeft(y), top = rowTop(x);
+		return new Rectangle(left, top, columnLeft(y + 1) - left, rowTop(x + 1) - top);
+	}
+
+	//Cells can differ by a pixel when the size doesn't divide evenly,
+	//icons are scaled to the smaller size so one set fits everywhere
+	private int cellWidth(){ return getWidth() / columns(); }
+	private int cellHeight(){ return getHeight() / rows(); }
+
+	/*============ PAINTING ============*/
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		Rectangle clip = g.getClipBounds();
+		if(clip == null)
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		clip = clip.intersection(new Rectangle(0, 0, getWidth(), getHeight()));
+		if(clip.isEmpty())
+			return;
+		int firstRow = rowAt(clip.y), lastRow = rowAt(clip.y + clip.height - 1);
+		int firstCol = columnAt(clip.x), lastCol = columnAt(clip.x + clip.width - 1);
+		int iconWidth = cellWidth(), iconHeight = cellHeight();
+		for(int x = firstRow; x <= lastRow; x++){
+			int top = rowTop(x), bottom = rowTop(x + 1);
+			for(int y = firstCol; y <= lastCol; y++){
+				int left = columnLeft(y), right = columnLeft(y + 1);
+				paintCell(g, model.index(x, y), left, top, right - left, bottom - top,
+						iconWidth, iconHeight);
+			}
+		}
+		if(changed != 0){
+			long latency = System.nanoTime() - changed;
+			changed = 0;
+			CLICK_TO_PAINT.record(latency);
+			GameEvents.ClickToPaint event = new GameEvents.ClickToPaint();
+			event.latency = latency;
+			event.commit();
+		}
+	}
+
+	/** Paints one cell, picking the icon from model state and the game over display */
+	private void paintCell(Graphics g, int cell, int left, int top, int w, int h,
+			int iconWidth, int iconHeight){
+		boolean mine = model.isMine(cell), flagged = model.isFlagged(cell);
+		boolean open;
+		int icon;
+		if(lost){
+			open = true;
+			if(cell == exploded){
+				//Cool guys don't look at exploBOOOOOM
+				icon = IconCache.BANG;
+			}else if(flagged){
+				icon = mine ? IconCache.FLAG : IconCache.F_FLAG;
+			}else{
+				icon = mine ? IconCache.BOMB : model.adjacentMines(cell);
+			}
+		}else if(won && mine){
+			open = true;
+			icon = flagged ? IconCache.FLAG : IconCache.BOMB;
+		}else if(model.isRevealed(cell)){
+			open = true;
+			icon = model.adjacentMines(cell);
+		}else{
+			open = false;
+			icon = flagged ? IconCache.FLAG : IconCache.BLANK;
+		}
+		if(open){
+			g.setColor(disabledColor);
+			g.fillRect(left, top, w, h);
+			g.setColor(Color.GRAY);
+			g.drawRect(left, top, w - 1, h - 1);
+		}else{
+			g.setColor(enabledColor);
+			g.fillRect(left, top, w, h);
+			g.draw3DRect(left, top, w - 1, h - 1, true);
+		}
+		ImageIcon image = IconCache.get(icon, iconWidth, iconHeight);
+		if(image != null)
+			g.drawImage(image.getImage(), left, top, iconWidth, iconHeight, null);
+		if(odds != null && !open && !flagged)
+			paintOdds(g, odds.get(cell), odds.isApproximate(cell), left, top, w, h);
+		if(cell == hint && !open){
+			g.setColor(hintColor);
+			g.drawRect(left + 1, top + 1, w - 3, h - 3);
+			g.drawRect(left + 2, top + 2, w - 5, h - 5);
+		}
+	}
+
+	private void paintOdds(Graphics g, double chance, boolean estimate, int left, int top, int w, int h){
+		int red = (int)Math.round(255 * chance);
+		g.setColor(new Color(red, 255 - red, 0, 110));
+		g.fillRect(left + 1, top + 1, w - 2, h - 2);
+		String label = (estimate ? "~" : "")+Math.round(chance * 100)+"%";
+		FontMetrics metrics = g.getFontMetrics();
+		if(metrics.stringWidth(label) + 2 <= w && metrics.getAscent() <= h){
+			g.setColor(Color.BLACK);
+			g.drawString(label, left + (w - metrics.stringWidth(label)) / 2,
+					top + (h + metrics.getAscent() - metrics.getDescent()) / 2);
+		}
+	}
+
+	/*============ SIZING AND SCROLLING ============*/
+
+	/** Smallest size before the board starts scrolling */
+	@Override
+	public Dimension getPreferredSize() {
+		return new Dimension(columns() * MIN_CELL_SIZE, rows() * MIN_CELL_SIZE);
+	}
+
+	@Override
+	public Dimension getPreferredScrollableViewportSize() {
+		return new Dimension(Math.min(columns() * CELL_SIZE, MAX_VIEWPORT),
+				Math.min(rows() * CELL_SIZE, MAX_VIEWPORT));
+	}
+
+	@Override
+	public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+		return MIN_CELL_SIZE;
+	}
+
+	@Override
+	public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+		return orientation == javax.swing.SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportWidth() {
+		Container parent = getParent();
+		return parent instanceof JViewport && parent.getWidth() >= getPreferredSize().width;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportHeight() {
+		Container parent = getParent();
+		return parent instanceof JViewport && parent.getHeight() >= getPreferredSize().height;
+	}
+}
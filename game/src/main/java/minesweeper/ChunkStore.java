@@ -0,0 +1,113 @@
+package minesweeper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Where EndlessBoard puts chunks it's played on but can't keep in
+ * memory. Mines aren't stored, they come back from the seed, just the
+ * revealed and flagged planes in one fixed size record per chunk:
+ * [chunk x int][chunk y int][revealed planes][flagged planes]
+ * A chunk keeps its record once it has one and gets written over in
+ * place, so the file only grows with the area explored. Only the slot
+ * index is kept in memory.
+ *
+ * The file's a temp file, it goes when the game does.
+ */
+class ChunkStore {
+
+	private static final int WORDS = EndlessBoard.CHUNK * EndlessBoard.CHUNK / 64;
+	private static final int RECORD = 8 + WORDS * 8 * 2;
+
+	private final File file;
+	private final FileChannel channel;
+	private final Map<Long, Integer> slots = new HashMap<>();
+	private final ByteBuffer record = ByteBuffer.allocate(RECORD);
+
+	ChunkStore() throws IOException{
+		file = File.createTempFile("endless", ".chunks");
+		file.deleteOnExit();
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	int size(){
+		return slots.size();
+	}
+
+	boolean contains(int cx, int cy){
+		return slots.containsKey(key(cx, cy));
+	}
+
+	void write(int cx, int cy, long[] revealed, long[] flagged){
+		Integer slot = slots.get(key(cx, cy));
+		if(slot == null){
+			slot = slots.size();
+			slots.put(key(cx, cy), slot);
+		}
+		record.clear();
+		record.putInt(cx).putInt(cy);
+		for(long word : revealed)
+			record.putLong(word);
+		for(long word : flagged)
+			record.putLong(word);
+		record.flip();
+		try{
+			long at = (long)slot * RECORD;
+			while(record.hasRemaining())
+				at += channel.write(record, at);
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Fills in the planes from the chunk's record, if it has one
+	 *
+	 * @return False if the chunk's never been stored
+	 */
+	boolean read(int cx, int cy, long[] revealed, long[] flagged){
+		Integer slot = slots.get(key(cx, cy));
+		if(slot == null)
+			return false;
+		record.clear();
+		try{
+			long at = (long)slot * RECORD;
+			while(record.hasRemaining()){
+				int read = channel.read(record, at);
+				if(read < 0)
+					throw new IOException("Chunk store cut short");
+				at += read;
+			}
+		}catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+		record.flip();
+		if(record.getInt() != cx || record.getInt() != cy)
+			throw new IllegalStateException("Chunk store is corrupt");
+		for(int i = 0; i < WORDS; i++)
+			revealed[i] = record.getLong();
+		for(int i = 0; i < WORDS; i++)
+			flagged[i] = record.getLong();
+		return true;
+	}
+
+	void close(){
+		slots.clear();
+		try{
+			channel.close();
+		}catch(IOException e){
+			//Going anyway
+		}
+		file.delete();
+	}
+
+	private static long key(int cx, int cy){
+		return ((long)cx << 32) | (cy & 0xffffffffL);
+	}
+}
@@ -0,0 +1,52 @@
+package minesweeper;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed size ring of commands from exactly one producer thread to exactly
+ * one consumer thread, for GameEngine. No locks, each side only ever
+ * writes its own counter, and publishes it with a release store the other
+ * side reads with an acquire, which is enough to hand the slot over.
+ *
+ * Commands are packed into a long as action << 32 | cell, so they're
+ * never negative and poll can use -1 for empty.
+ */
+class CommandQueue {
+
+	private final long[] slots;
+	private final int mask;
+	//Next slot to read, only written by the consumer
+	private final AtomicLong head = new AtomicLong();
+	//Next slot to write, only written by the producer
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * @param capacity Slots in the ring, a power of two
+	 */
+	CommandQueue(int capacity){
+		if(Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("Capacity has to be a power of two");
+		slots = new long[capacity];
+		mask = capacity - 1;
+	}
+
+	/** Producer only. @return False if the ring is full */
+	boolean offer(int action, int cell){
+		long t = tail.get();
+		if(t - head.get() == slots.length)
+			return false;
+		slots[(int)t & mask] = (long)action << 32 | cell;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/** Consumer only. @return The next command, or -1 if there isn't one */
+	long poll(){
+		long h = head.get();
+		if(h == tail.get())
+			return -1;
+		long command = slots[(int)h & mask];
+		head.lazySet(h + 1);
+		return command;
+	}
+}
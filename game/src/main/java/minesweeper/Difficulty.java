@@ -0,0 +1,23 @@
+package minesweeper;
+
+/**
+ * Standard board settings. CUST has no fixed size, the dimensions
+ * come from the user (or the command line, for the simulator).
+ * ENDLESS never runs out of board, its numbers are for one chunk
+ * of an EndlessBoard.
+ */
+public enum Difficulty {
+	EASY(9, 9, 10),
+	INT(16, 16, 40),
+	HARD(30, 16, 99),
+	CUST(0, 0, 0),
+	ENDLESS(EndlessBoard.CHUNK, EndlessBoard.CHUNK, 205);
+
+	public final int width, height, numMines;
+
+	private Difficulty(int width, int height, int numMines){
+		this.width = width;
+		this.height = height;
+		this.numMines = numMines;
+	}
+}
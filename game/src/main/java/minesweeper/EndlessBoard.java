@@ -0,0 +1,247 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Board for endless mode, with no edges. It's cut into CHUNK x CHUNK
+ * chunks, and each chunk's mines come from a hash of the world seed and
+ * the chunk's position, so a chunk can be built from nothing whenever
+ * it's needed and always comes out the same. Nothing exists until a
+ * reveal or the view gets to it.
+ *
+ * Only CACHE_CHUNKS chunks are held at once. When one falls out of the
+ * cache, it's just dropped if it's never been touched, since it can be
+ * built again, and written to a ChunkStore on disk if it has. So memory
+ * goes with how much has been explored, not how big the board could be.
+ *
+ * Cells are addressed by x and y, same as Board, each anywhere in the
+ * int range. The start cell (START, START) and its neighbours are kept
+ * clear so the first click is safe.
+ */
+public class EndlessBoard {
+
+	public static final int CHUNK = 32, START = CHUNK / 2;
+	private static final int SHIFT = 5, MASK = CHUNK - 1, WORDS = CHUNK * CHUNK / 64;
+	private static final int CACHE_CHUNKS = 1024;
+
+	/** One CHUNK x CHUNK block, cells indexed the same way Board does it */
+	static class Chunk {
+		final int cx, cy;
+		final long[] mines = new long[WORDS], revealed = new long[WORDS], flagged = new long[WORDS];
+		//Numbers, worked out the first time they're needed
+		byte[] adjacent;
+		//Touched since it was built, has to be stored rather than dropped
+		boolean modified;
+
+		Chunk(int cx, int cy){
+			this.cx = cx;
+			this.cy = cy;
+		}
+	}
+
+	private final long worldSeed;
+	private final int minesPerChunk;
+	private final ChunkStore store;
+	private final Map<Long, Chunk> cache;
+	private long revealedCount;
+	private int flags;
+
+	/**
+	 * @param worldSeed Seed the whole board comes from
+	 * @param minesPerChunk Mines in each CHUNK x CHUNK block
+	 */
+	public EndlessBoard(long worldSeed, int minesPerChunk) throws IOException{
+		this.worldSeed = worldSeed;
+		this.minesPerChunk = minesPerChunk;
+		this.store = new ChunkStore();
+		//Access ordered, so the eldest entry is the least recently used
+		this.cache = new LinkedHashMap<Long, Chunk>(CACHE_CHUNKS * 2, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+				if(size() <= CACHE_CHUNKS)
+					return false;
+				evict(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	public long worldSeed(){ return worldSeed; }
+	/** @return Cells revealed so far, the endless score */
+	public long revealedCount(){ return revealedCount; }
+	public int flags(){ return flags; }
+	/** @return Chunks held in memory right now */
+	public int cachedChunks(){ return cache.size(); }
+	/** @return Chunks that have been written out to disk */
+	public int storedChunks(){ return store.size(); }
+
+	public boolean isMine(int x, int y){
+		return get(chunk(x, y, true).mines, x, y);
+	}
+
+	/** Doesn't build anything, cells nobody's touched are just hidden */
+	public boolean isRevealed(int x, int y){
+		Chunk c = chunk(x, y, false);
+		return c != null && get(c.revealed, x, y);
+	}
+
+	public boolean isFlagged(int x, int y){
+		Chunk c = chunk(x, y, false);
+		return c != null && get(c.flagged, x, y);
+	}
+
+	/** @return Number shown on the cell once it's revealed */
+	public int adjacentMines(int x, int y){
+		Chunk c = chunk(x, y, true);
+		if(c.adjacent == null)
+			c.adjacent = countAdjacent(c);
+		return c.adjacent[cell(x, y)];
+	}
+
+	/**
+	 * Reveals a cell, flood filling out from it across chunks if it's
+	 * a zero, same as Board.reveal. Mines, flags and revealed cells are
+	 * left alone, so the caller has to handle a click on a mine itself.
+	 *
+	 * @return Number of cells opened
+	 */
+	public int reveal(int x, int y){
+		if(isFlagged(x, y) || isMine(x, y) || isRevealed(x, y))
+			return 0;
+		long[] queue = new long[16];
+		int head = 0, tail = 0;
+		mark(x, y);
+		queue[tail++] = pack(x, y);
+		while(head < tail){
+			long next = queue[head++];
+			int nx = (int)(next >> 32), ny = (int)next;
+			if(adjacentMines(nx, ny) != 0)
+				continue;
+			for(int dx = -1; dx <= 1; dx++){
+				for(int dy = -1; dy <= 1; dy++){
+					int px = nx + dx, py = ny + dy;
+					if(!isRevealed(px, py) && !isFlagged(px, py)){
+						mark(px, py);
+						if(tail == queue.length)
+							queue = Arrays.copyOf(queue, tail * 2);
+						queue[tail++] = pack(px, py);
+					}
+				}
+			}
+		}
+		revealedCount += tail;
+		return tail;
+	}
+
+	/**Flags or deflags an unrevealed cell
+	 *
+	 * @return True if the cell is flagged after the call
+	 */
+	public boolean toggleFlag(int x, int y){
+		Chunk c = chunk(x, y, true);
+		if(get(c.revealed, x, y))
+			return false;
+		c.modified = true;
+		int i = cell(x, y);
+		c.flagged[i >>> 6] ^= 1L << i;
+		boolean flagged = get(c.flagged, x, y);
+		flags += flagged ? 1 : -1;
+		return flagged;
+	}
+
+	/** Throws away the disk store, the board can't be used after this */
+	public void close(){
+		cache.clear();
+		store.close();
+	}
+
+	//============Chunks================
+
+	/**
+	 * @param build False to skip building chunks nobody's touched
+	 * @return The chunk holding the cell, from the cache, the store or
+	 * freshly built, or null if build was false and it's never been touched
+	 */
+	private Chunk chunk(int x, int y, boolean build){
+		int cx = x >> SHIFT, cy = y >> SHIFT;
+		Long key = pack(cx, cy);
+		Chunk c = cache.get(key);
+		if(c != null)
+			return c;
+		if(!build && !store.contains(cx, cy))
+			return null;
+		c = generate(cx, cy);
+		if(store.read(cx, cy, c.revealed, c.flagged))
+			c.modified = true;
+		cache.put(key, c);
+		return c;
+	}
+
+	/** Lays out a chunk's mines from the world seed, see MinePlacer */
+	private Chunk generate(int cx, int cy){
+		Chunk c = new Chunk(cx, cy);
+		Board scratch = new Board(CHUNK, CHUNK);
+		int safe = cx == 0 && cy == 0 ? scratch.index(START, START) : -1;
+		MinePlacer.place(scratch, minesPerChunk, chunkSeed(cx, cy), safe);
+		LongBuffer planes = LongBuffer.allocate(scratch.planeWords() * 3);
+		scratch.writePlanes(planes);
+		planes.flip();
+		planes.get(c.mines);
+		return c;
+	}
+
+	/** Mixes the chunk position into the world seed, the same way every time */
+	private long chunkSeed(int cx, int cy){
+		long h = worldSeed ^ (cx * 0x9E3779B97F4A7C15L) ^ (cy * 0xC2B2AE3D27D4EB4FL);
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		return h ^ (h >>> 33);
+	}
+
+	/** Counts mines around every cell in the chunk, borrowing from its neighbours at the edges */
+	private byte[] countAdjacent(Chunk c){
+		byte[] counts = new byte[CHUNK * CHUNK];
+		int baseX = c.cx << SHIFT, baseY = c.cy << SHIFT;
+		for(int x = -1; x <= CHUNK; x++){
+			for(int y = -1; y <= CHUNK; y++){
+				boolean inside = x >= 0 && x < CHUNK && y >= 0 && y < CHUNK;
+				if(inside ? !get(c.mines, x, y) : !isMine(baseX + x, baseY + y))
+					continue;
+				for(int px = Math.max(x - 1, 0); px <= Math.min(x + 1, MASK); px++)
+					for(int py = Math.max(y - 1, 0); py <= Math.min(y + 1, MASK); py++)
+						counts[px * CHUNK + py]++;
+			}
+		}
+		return counts;
+	}
+
+	/** Drops a chunk falling out of the cache, saving it first if it's been played on */
+	private void evict(Chunk c){
+		if(c.modified)
+			store.write(c.cx, c.cy, c.revealed, c.flagged);
+	}
+
+	private void mark(int x, int y){
+		Chunk c = chunk(x, y, true);
+		c.modified = true;
+		int i = cell(x, y);
+		c.revealed[i >>> 6] |= 1L << i;
+	}
+
+	private static int cell(int x, int y){
+		return (x & MASK) * CHUNK + (y & MASK);
+	}
+
+	private static long pack(int x, int y){
+		return ((long)x << 32) | (y & 0xffffffffL);
+	}
+
+	private static boolean get(long[] plane, int x, int y){
+		int i = cell(x, y);
+		return (plane[i >>> 6] & (1L << i)) != 0;
+	}
+}
@@ -0,0 +1,208 @@
+package minesweeper;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+
+import javax.swing.ImageIcon;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+/**
+ * Window onto an EndlessBoard. There's no edge to scroll to, so the
+ * view just keeps an offset into the board in pixels, and only the cells
+ * inside it ever get looked at. Drag to move around, or use the wheel
+ * (with shift for sideways). A press and release without dragging is a
+ * click, left to reveal and right to flag, passed on to Clicks.
+ *
+ * Same orientation as BoardView, x runs down the rows and y across the
+ * columns, always at CELL_SIZE.
+ */
+@SuppressWarnings("serial")
+public class EndlessView extends JComponent {
+
+	/** What to do with a click on a cell, the view doesn't change the board itself */
+	public interface Clicks {
+		void reveal(int x, int y);
+		void flag(int x, int y);
+	}
+
+	private static final int CELL = BoardView.CELL_SIZE, DRAG_SLOP = 4, WHEEL_CELLS = 3;
+	private final Color disabledColor = Color.DARK_GRAY, enabledColor = Color.LIGHT_GRAY;
+	private final Color hintColor = Color.YELLOW;
+
+	private final EndlessBoard model;
+	//Board pixel at the view's top left corner, long since cells go all the way out to the int range
+	private long top, left;
+	private boolean centered;
+	//Game over display, the mine that was clicked
+	private boolean lost;
+	private int explodedX, explodedY;
+
+	public EndlessView(EndlessBoard model, final Clicks clicks){
+		this.model = model;
+		setOpaque(true);
+		//Start over the safe start cell, once there's a size to center in
+		addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				if(centered)
+					return;
+				centered = true;
+				top = (long)EndlessBoard.START * CELL + CELL / 2 - getHeight() / 2;
+				left = (long)EndlessBoard.START * CELL + CELL / 2 - getWidth() / 2;
+				repaint();
+			}
+		});
+		MouseAdapter mouse = new MouseAdapter() {
+			private Point pressed, last;
+			private boolean dragged;
+
+			@Override
+			public void mousePressed(MouseEvent e) {
+				pressed = last = e.getPoint();
+				dragged = false;
+			}
+
+			@Override
+			public void mouseDragged(MouseEvent e) {
+				if(pressed == null)
+					return;
+				Point p = e.getPoint();
+				if(!dragged && pressed.distance(p) < DRAG_SLOP)
+					return;
+				dragged = true;
+				scrollBy(last.y - p.y, last.x - p.x);
+				last = p;
+			}
+
+			@Override
+			public void mouseReleased(MouseEvent e) {
+				if(pressed == null || dragged || lost){
+					pressed = null;
+					return;
+				}
+				pressed = null;
+				int x = rowAt(e.getY()), y = columnAt(e.getX());
+				if(SwingUtilities.isLeftMouseButton(e))
+					clicks.reveal(x, y);
+				else if(SwingUtilities.isRightMouseButton(e))
+					clicks.flag(x, y);
+			}
+
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				int pixels = e.getWheelRotation() * WHEEL_CELLS * CELL;
+				if(e.isShiftDown())
+					scrollBy(0, pixels);
+				else
+					scrollBy(pixels, 0);
+			}
+		};
+		addMouseListener(mouse);
+		addMouseMotionListener(mouse);
+		addMouseWheelListener(mouse);
+	}
+
+	/**
+	 * Shows mines and numbers for everything in view, with wrongly
+	 * flagged cells marked. Clicks stop once it's shown.
+	 */
+	public void showLoss(int x, int y){
+		lost = true;
+		explodedX = x;
+		explodedY = y;
+		repaint();
+	}
+
+	public boolean isGameOver(){
+		return lost;
+	}
+
+	/** Moves the view over the board by a number of pixels */
+	public void scrollBy(int down, int across){
+		top += down;
+		left += across;
+		repaint();
+	}
+
+	private int rowAt(int py){
+		return (int)Math.floorDiv(top + py, CELL);
+	}
+
+	private int columnAt(int px){
+		return (int)Math.floorDiv(left + px, CELL);
+	}
+
+	/*============ PAINTING ============*/
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		Rectangle clip = g.getClipBounds();
+		if(clip == null)
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		if(clip.isEmpty())
+			return;
+		int firstRow = rowAt(clip.y), lastRow = rowAt(clip.y + clip.height - 1);
+		int firstCol = columnAt(clip.x), lastCol = columnAt(clip.x + clip.width - 1);
+		for(int x = firstRow; x <= lastRow; x++){
+			int py = (int)((long)x * CELL - top);
+			for(int y = firstCol; y <= lastCol; y++)
+				paintCell(g, x, y, (int)((long)y * CELL - left), py);
+		}
+	}
+
+	/** Same look as BoardView.paintCell */
+	private void paintCell(Graphics g, int x, int y, int px, int py){
+		boolean flagged = model.isFlagged(x, y), open;
+		int icon;
+		if(lost){
+			open = true;
+			boolean mine = model.isMine(x, y);
+			if(x == explodedX && y == explodedY){
+				icon = IconCache.BANG;
+			}else if(flagged){
+				icon = mine ? IconCache.FLAG : IconCache.F_FLAG;
+			}else{
+				icon = mine ? IconCache.BOMB : model.adjacentMines(x, y);
+			}
+		}else if(model.isRevealed(x, y)){
+			open = true;
+			icon = model.adjacentMines(x, y);
+		}else{
+			open = false;
+			icon = flagged ? IconCache.FLAG : IconCache.BLANK;
+		}
+		if(open){
+			g.setColor(disabledColor);
+			g.fillRect(px, py, CELL, CELL);
+			g.setColor(Color.GRAY);
+			g.drawRect(px, py, CELL - 1, CELL - 1);
+		}else{
+			g.setColor(enabledColor);
+			g.fillRect(px, py, CELL, CELL);
+			g.draw3DRect(px, py, CELL - 1, CELL - 1, true);
+		}
+		ImageIcon image = IconCache.get(icon, CELL, CELL);
+		if(image != null)
+			g.drawImage(image.getImage(), px, py, CELL, CELL, null);
+		//Point out the safe place to start until they've started
+		if(!open && model.revealedCount() == 0 && x == EndlessBoard.START && y == EndlessBoard.START){
+			g.setColor(hintColor);
+			g.drawRect(px + 1, py + 1, CELL - 3, CELL - 3);
+			g.drawRect(px + 2, py + 2, CELL - 5, CELL - 5);
+		}
+	}
+
+	@Override
+	public Dimension getPreferredSize() {
+		return new Dimension(20 * CELL, 20 * CELL);
+	}
+}
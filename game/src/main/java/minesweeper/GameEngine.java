@@ -0,0 +1,193 @@
+package minesweeper;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays moves on a board on its own thread, so a huge reveal never holds
+ * up the EDT. The engine is the only thing that ever writes to its board.
+ * Moves come in through submit(), over a lock free CommandQueue, and each
+ * one goes back out to the Listener as a Delta saying what changed. The
+ * UI keeps its own Board.mirror() in step by applying the deltas in order.
+ *
+ * Moves follow the same rules as clicking: nothing happens to flagged or
+ * revealed cells, and once the game's won or lost only a reset counts.
+ * That way it doesn't matter if the UI's mirror is a move or two behind
+ * when it sends one. There's no Swing in here, so it runs headless too.
+ *
+ * RESTORE puts the board back to a BoardHistory version, for undo and
+ * redo. It's not a move, so it never goes in a replay.
+ */
+public class GameEngine {
+
+	public static final int REVEAL = Replay.REVEAL, FLAG = Replay.FLAG,
+			RESET = Replay.RESET, CHORD = Replay.CHORD, RESTORE = 4;
+	private static final int QUEUE = 1024;
+	private static final int[] NONE = new int[0];
+	private static final Metrics.Histogram REVEAL_TIME = Metrics.histogram("reveal");
+	private static final Metrics.Counter CELLS_OPENED = Metrics.counter("cellsOpened");
+
+	/** Gets every delta, in order, on the engine thread */
+	public interface Listener {
+		void applied(Delta delta);
+	}
+
+	/** What one move did to the board. Never changed after it's made. */
+	public static class Delta {
+		public final int action, cell;
+		//Cells revealed, empty if none
+		public final int[] opened;
+		//For a FLAG, whether the cell's flagged now, even if it didn't change
+		public final boolean flagged;
+		//Mine that was hit, -1 if none
+		public final int exploded;
+		public final boolean won;
+
+		Delta(int action, int cell, int[] opened, boolean flagged, int exploded, boolean won){
+			this.action = action;
+			this.cell = cell;
+			this.opened = opened;
+			this.flagged = flagged;
+			this.exploded = exploded;
+			this.won = won;
+		}
+	}
+
+	private final Board board;
+	private final Listener listener;
+	private final CommandQueue commands = new CommandQueue(QUEUE);
+	//From and to versions for each RESTORE queued, in the same order
+	private final ConcurrentLinkedQueue<BoardHistory.Version[]> restores =
+			new ConcurrentLinkedQueue<BoardHistory.Version[]>();
+	private final Thread thread;
+	private volatile boolean closed;
+	//Won or lost, only touched on the engine thread
+	private boolean over;
+
+	/**
+	 * Starts the engine thread
+	 *
+	 * @param board Board to play on, nothing else may touch it from here on
+	 */
+	public GameEngine(Board board, Listener listener){
+		this.board = board;
+		this.listener = listener;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				play();
+			}
+		}, "game-engine");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queues a move. Only ever call from one thread, normally the EDT.
+	 * Waits if the engine's a full queue behind, which it never should be.
+	 *
+	 * @param action REVEAL, FLAG, RESET or CHORD
+	 * @param cell Cell the move is on, ignored for a reset
+	 */
+	public void submit(int action, int cell){
+		while(!commands.offer(action, cell)){
+			LockSupport.unpark(thread);
+			Thread.onSpinWait();
+		}
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Queues putting the board back to another version, same thread rules
+	 * as submit(). Comes back as a RESTORE delta with nothing in it.
+	 *
+	 * @param from Version the board will be at by the time this is played
+	 * @param to Version to go to
+	 */
+	public void restore(BoardHistory.Version from, BoardHistory.Version to){
+		restores.add(new BoardHistory.Version[]{from, to});
+		submit(RESTORE, 0);
+	}
+
+	/** Stops the engine and waits for it, anything still queued is dropped */
+	public void close(){
+		closed = true;
+		LockSupport.unpark(thread);
+		try{
+			thread.join();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Engine thread, sleeps whenever the queue's empty */
+	private void play(){
+		while(!closed){
+			long command = commands.poll();
+			if(command < 0){
+				LockSupport.park(this);
+				continue;
+			}
+			listener.applied(apply((int)(command >>> 32), (int)command));
+		}
+	}
+
+	private Delta apply(int action, int cell){
+		switch(action){
+		case RESET:
+			board.reset();
+			over = false;
+			return new Delta(action, cell, NONE, false, -1, false);
+		case FLAG:
+			if(over || board.isRevealed(cell))
+				break;
+			return new Delta(action, cell, NONE, board.toggleFlag(cell), -1, false);
+		case REVEAL:
+			if(over || board.isRevealed(cell) || board.isFlagged(cell))
+				break;
+			if(board.isMine(cell))
+				return lost(action, cell, cell);
+			return opened(action, cell, reveal(action, cell));
+		case CHORD:
+			//Opens nothing, so it's not timed or counted either
+			if(over || !board.canChord(cell))
+				break;
+			int mine = board.chordMine(cell);
+			if(mine >= 0)
+				return lost(action, cell, mine);
+			return opened(action, cell, reveal(action, cell));
+		case RESTORE:
+			BoardHistory.Version[] versions = restores.poll();
+			board.restore(versions[0], versions[1]);
+			over = board.isCleared();
+			return new Delta(action, cell, NONE, false, -1, false);
+		}
+		//Didn't do anything, but still gets a delta so every move gets one
+		return new Delta(action, cell, NONE, board.isFlagged(cell), -1, false);
+	}
+
+	/** Plays a reveal or chord that's known to be safe, timed */
+	private int[] reveal(int action, int cell){
+		GameEvents.Reveal event = new GameEvents.Reveal();
+		event.begin();
+		long start = System.nanoTime();
+		int[] opened = action == CHORD ? board.chord(cell) : board.reveal(cell);
+		REVEAL_TIME.since(start);
+		CELLS_OPENED.add(opened.length);
+		event.cell = cell;
+		event.chord = action == CHORD;
+		event.opened = opened.length;
+		event.commit();
+		return opened;
+	}
+
+	private Delta lost(int action, int cell, int mine){
+		over = true;
+		return new Delta(action, cell, NONE, false, mine, false);
+	}
+
+	private Delta opened(int action, int cell, int[] opened){
+		over = board.isCleared();
+		return new Delta(action, cell, opened, false, -1, over);
+	}
+}
@@ -0,0 +1,93 @@
+package minesweeper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder events for the spots worth timing. Start a recording
+ * with -XX:StartFlightRecording and they show up under Minesweeper in
+ * JDK Mission Control, alongside GC and the EDT's own stalls. With no
+ * recording going, the JIT drops them down to nothing, so they stay in.
+ *
+ * Usual pattern, commit() only writes if a recording wants it:
+ *   GameEvents.Reveal event = new GameEvents.Reveal();
+ *   event.begin();
+ *   ...
+ *   event.commit();
+ */
+public class GameEvents {
+
+	@Name("minesweeper.NewGame")
+	@Label("New Game")
+	@Category("Minesweeper")
+	@Description("Setting up a board and its view for a new game")
+	public static class NewGame extends Event {
+		@Label("Width")
+		public int width;
+		@Label("Height")
+		public int height;
+		@Label("Mines")
+		public int mines;
+		@Label("From Pool")
+		@Description("Board came ready mined from the BoardPool")
+		public boolean pooled;
+	}
+
+	@Name("minesweeper.PlaceMines")
+	@Label("Place Mines")
+	@Category("Minesweeper")
+	@Description("Mines going down and the numbers being worked out, on whichever thread")
+	public static class PlaceMines extends Event {
+		@Label("Cells")
+		public int cells;
+		@Label("Mines")
+		public int mines;
+	}
+
+	@Name("minesweeper.Reveal")
+	@Label("Reveal")
+	@Category("Minesweeper")
+	@Description("A reveal or chord played by the game engine")
+	public static class Reveal extends Event {
+		@Label("Cell")
+		public int cell;
+		@Label("Chord")
+		public boolean chord;
+		@Label("Cells Opened")
+		public int opened;
+	}
+
+	@Name("minesweeper.IconScale")
+	@Label("Icon Scale")
+	@Category("Minesweeper")
+	@Description("Scaling every cell icon to a new cell size")
+	public static class IconScale extends Event {
+		@Label("Width")
+		public int width;
+		@Label("Height")
+		public int height;
+	}
+
+	@Name("minesweeper.ScoreIO")
+	@Label("High Score I/O")
+	@Category("Minesweeper")
+	@Description("Loading, journaling or compacting the high scores")
+	public static class ScoreIO extends Event {
+		@Label("Operation")
+		public String operation;
+	}
+
+	@Name("minesweeper.ClickToPaint")
+	@Label("Click To Paint")
+	@Category("Minesweeper")
+	@Description("From a click on the board to the board being painted with what it did")
+	public static class ClickToPaint extends Event {
+		@Label("Latency")
+		@Timespan(Timespan.NANOSECONDS)
+		public long latency;
+	}
+}
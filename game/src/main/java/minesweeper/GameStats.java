@@ -0,0 +1,265 @@
+package minesweeper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import minesweeper.Leaderboard.Config;
+
+/**
+ * Every game ever finished, win or lose, kept in columns rather than rows
+ * so totals over millions of games are a straight run down a few arrays.
+ *
+ * The file is a header, [magic, version, rows per block, padding], then
+ * fixed size blocks of BLOCK_ROWS games each. A block is its row count
+ * followed by one column after another, every column a plain array of
+ * BLOCK_ROWS values:
+ * [rows][timestamp longs][width][height][mines][millis][clicks][flags][3bv ints][outcome bytes]
+ * The block being filled is memory mapped read/write, so adding a game is
+ * a handful of stores with the row count going in last. Reading maps the
+ * blocks too and works straight off the columns, no game ever gets turned
+ * into an object. Full blocks never change, so their mappings get kept.
+ */
+public class GameStats {
+
+	public static final byte LOST = 0, WON = 1, GAVE_UP = 2;
+	static final int BLOCK_ROWS = 4096;
+	private static final int MAGIC = 0x4d534753, VERSION = 1, HEADER = 16;
+	//Column offsets in a block, and the size of a whole block
+	private static final int TIMESTAMP = 8, WIDTH = TIMESTAMP + 8 * BLOCK_ROWS,
+			HEIGHT = WIDTH + 4 * BLOCK_ROWS, MINES = HEIGHT + 4 * BLOCK_ROWS,
+			MILLIS = MINES + 4 * BLOCK_ROWS, CLICKS = MILLIS + 4 * BLOCK_ROWS,
+			FLAGS = CLICKS + 4 * BLOCK_ROWS, THREE_BV = FLAGS + 4 * BLOCK_ROWS,
+			OUTCOME = THREE_BV + 4 * BLOCK_ROWS, BLOCK = OUTCOME + BLOCK_ROWS;
+
+	/** How one board setup's games went, from summarize() */
+	public static class Summary {
+		public final Config config;
+		public final long games, wins;
+		//Time of every win, sorted fastest first
+		private final int[] times;
+		private final long winningThreeBV;
+
+		Summary(Config config, long games, long wins, int[] times, long winningThreeBV){
+			this.config = config;
+			this.games = games;
+			this.wins = wins;
+			this.times = times;
+			this.winningThreeBV = winningThreeBV;
+		}
+
+		public double winRate(){
+			return games == 0 ? 0 : (double)wins / games;
+		}
+
+		/**
+		 * @param percent 0 to 100, 0 is the best time
+		 * @return Winning time in millis at that percentile, 0 if nothing's been won
+		 */
+		public long percentile(double percent){
+			if(times.length == 0)
+				return 0;
+			int rank = (int)Math.ceil(times.length * percent / 100) - 1;
+			return times[Math.max(0, Math.min(rank, times.length - 1))];
+		}
+
+		/** @return 3BV cleared per second over every win, 0 if there aren't any */
+		public double threeBVPerSecond(){
+			long millis = 0;
+			for(int time : times)
+				millis += time;
+			return millis == 0 ? 0 : winningThreeBV * 1000.0 / millis;
+		}
+
+		/**
+		 * Winning times bucketed evenly from 0 up to the 99th percentile,
+		 * anything slower goes in the last bin
+		 *
+		 * @param bins How many buckets
+		 * @return Wins in each bucket, bin i starts at i * binMillis(bins)
+		 */
+		public int[] histogram(int bins){
+			int[] counts = new int[bins];
+			long width = binMillis(bins);
+			for(int time : times)
+				counts[(int)Math.min(time / width, bins - 1)]++;
+			return counts;
+		}
+
+		/** @return Millis covered by each bucket of histogram(bins) */
+		public long binMillis(int bins){
+			return Math.max(1, (percentile(99) + bins) / bins);
+		}
+	}
+
+	/** Running totals for one setup while summarize() goes down the columns */
+	private static class Totals {
+		long games, wins, threeBV;
+		int[] times = new int[16];
+		int won;
+	}
+
+	private final FileChannel channel;
+	//Mappings of the blocks that are full, and of the one being filled
+	private final List<MappedByteBuffer> full = new ArrayList<MappedByteBuffer>();
+	private MappedByteBuffer tail;
+	private int tailRows;
+
+	/**
+	 * Opens the history, starting a new one if the file's not there
+	 *
+	 * @throws IOException If it's not a stats file, or can't be opened
+	 */
+	public GameStats(File file) throws IOException{
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		boolean ok = false;
+		try{
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			if(channel.size() < HEADER){
+				header.putInt(MAGIC).putInt(VERSION).putInt(BLOCK_ROWS).flip();
+				while(header.hasRemaining())
+					channel.write(header, header.position());
+			}else{
+				while(header.hasRemaining() && channel.read(header, header.position()) >= 0);
+				header.flip();
+				if(header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != BLOCK_ROWS)
+					throw new IOException("Not a game stats file");
+			}
+			//A block cut short by dying as it was started gets filled out
+			//again by mapping it, anything after it can't be there
+			long blocks = Math.max(1, (channel.size() - HEADER + BLOCK - 1) / BLOCK);
+			for(long b = 0; b < blocks - 1; b++)
+				full.add(map(b, FileChannel.MapMode.READ_ONLY));
+			openTail(blocks - 1);
+			ok = true;
+		}finally{
+			if(!ok)
+				channel.close();
+		}
+	}
+
+	private MappedByteBuffer map(long block, FileChannel.MapMode mode) throws IOException{
+		return channel.map(mode, HEADER + block * BLOCK, BLOCK);
+	}
+
+	private void openTail(long block) throws IOException{
+		tail = map(block, FileChannel.MapMode.READ_WRITE);
+		tailRows = Math.max(0, Math.min(tail.getInt(0), BLOCK_ROWS));
+	}
+
+	/**
+	 * Adds a finished game on the end
+	 *
+	 * @param timestamp When it finished, epoch millis
+	 * @param outcome WON, LOST or GAVE_UP
+	 * @param millis Game clock when it finished
+	 * @param clicks Moves it took
+	 * @param flags Flags on the board at the end
+	 * @param threeBV The board's 3BV, see BoardAnalyzer
+	 */
+	public synchronized void add(long timestamp, int width, int height, int mines, byte outcome,
+			long millis, int clicks, int flags, int threeBV) throws IOException{
+		if(tailRows == BLOCK_ROWS){
+			full.add(map(full.size(), FileChannel.MapMode.READ_ONLY));
+			openTail(full.size());
+		}
+		int row = tailRows;
+		tail.putLong(TIMESTAMP + 8 * row, timestamp);
+		tail.putInt(WIDTH + 4 * row, width);
+		tail.putInt(HEIGHT + 4 * row, height);
+		tail.putInt(MINES + 4 * row, mines);
+		tail.putInt(MILLIS + 4 * row, (int)Math.min(millis, Integer.MAX_VALUE));
+		tail.putInt(CLICKS + 4 * row, clicks);
+		tail.putInt(FLAGS + 4 * row, flags);
+		tail.putInt(THREE_BV + 4 * row, threeBV);
+		tail.put(OUTCOME + row, outcome);
+		//Row's only there once the count says so
+		tail.putInt(0, ++tailRows);
+	}
+
+	/** @return Games recorded */
+	public synchronized long size(){
+		return (long)full.size() * BLOCK_ROWS + tailRows;
+	}
+
+	/** @return Totals for every board setup played, most played first */
+	public List<Summary> summarize(){
+		return summarize(null);
+	}
+
+	/** @return Totals for just one board setup, or null if it's never been played */
+	public Summary summarize(int width, int height, int mines){
+		List<Summary> only = summarize(new Config(width, height, mines));
+		return only.isEmpty() ? null : only.get(0);
+	}
+
+	/** @param only Setup to total up, or null for all of them */
+	private synchronized List<Summary> summarize(Config only){
+		Map<Config, Totals> totals = new HashMap<Config, Totals>();
+		Config config = null;
+		Totals current = null;
+		for(int b = 0; b <= full.size(); b++){
+			ByteBuffer block = b < full.size() ? full.get(b) : tail;
+			int rows = b < full.size() ? BLOCK_ROWS : tailRows;
+			for(int row = 0; row < rows; row++){
+				int width = block.getInt(WIDTH + 4 * row), height = block.getInt(HEIGHT + 4 * row);
+				int mines = block.getInt(MINES + 4 * row);
+				//Games come in runs on the same board, so the lookup's mostly skipped
+				if(config == null || config.width != width || config.height != height || config.numMines != mines){
+					config = new Config(width, height, mines);
+					if(only != null && !only.equals(config)){
+						current = null;
+						continue;
+					}
+					current = totals.get(config);
+					if(current == null)
+						totals.put(config, current = new Totals());
+				}
+				if(current == null)
+					continue;
+				current.games++;
+				if(block.get(OUTCOME + row) != WON)
+					continue;
+				current.wins++;
+				current.threeBV += block.getInt(THREE_BV + 4 * row);
+				if(current.won == current.times.length)
+					current.times = Arrays.copyOf(current.times, current.won * 2);
+				current.times[current.won++] = block.getInt(MILLIS + 4 * row);
+			}
+		}
+		List<Summary> summaries = new ArrayList<Summary>(totals.size());
+		for(Map.Entry<Config, Totals> e : totals.entrySet()){
+			Totals t = e.getValue();
+			int[] times = Arrays.copyOf(t.times, t.won);
+			Arrays.sort(times);
+			summaries.add(new Summary(e.getKey(), t.games, t.wins, times, t.threeBV));
+		}
+		Collections.sort(summaries, new Comparator<Summary>() {
+			@Override
+			public int compare(Summary a, Summary b) {
+				return Long.compare(b.games, a.games);
+			}
+		});
+		return summaries;
+	}
+
+	/** Everything's already in the file, the OS writes the mapping back */
+	public synchronized void close(){
+		try{
+			channel.close();
+		}catch(IOException e){
+			System.err.println("Problem closing game stats... Blame Jake.");
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package minesweeper;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Window;
+import java.awt.image.BufferedImage;
+
+import javax.swing.ImageIcon;
+import javax.swing.SwingWorker;
+
+/**
+ * Shared, pre-scaled cell icons. Every cell on the board is the same size,
+ * so instead of each button scaling its own copy of an image, we keep one
+ * set of icons for the current cell size and hand the same ImageIcon out
+ * to everyone. The set only changes when the board gets resized, and is
+ * rebuilt off the EDT when that happens. Until the new set's ready the
+ * old one gets handed out and stretched to fit, so painting never waits
+ * on scaling.
+ */
+public class IconCache {
+
+	/**
+	 * Icon indexes for get(). Use the public constants below for access to
+	 * the non sequential icons, and otherwise, pass in the number of adjacent
+	 * mines (0-8) to get the proper numeric icon
+	 */
+	public static final int BLANK = 0, BANG = 9, BOMB = 10, FLAG = 11, F_FLAG = 12;
+
+	private static String aDir = "assets/buttonIcons/";
+	private static ImageIcon[] buttonIcons =
+			//Numeric icons 0 is null, 1-8 are accurately named
+		{null, new ImageIcon(aDir+"1.png"), new ImageIcon(aDir+"2.png"),
+			new ImageIcon(aDir+"3.png"), new ImageIcon(aDir+"4.png"),
+			new ImageIcon(aDir+"5.png"), new ImageIcon(aDir+"6.png"),
+			new ImageIcon(aDir+"7.png"), new ImageIcon(aDir+"8.png"),
+			//Bomb-based icons and flags
+			new ImageIcon(aDir+"explosion.png"), new ImageIcon(aDir+"bomb.png"),
+			new ImageIcon(aDir+"p_bomb.png"), new ImageIcon(aDir+"wrong.png")}; /*For flag, question, mine*/
+
+	//Icons for the current cell size, and the latest size asked for by rescale
+	private static volatile ScaledSet current;
+	private static volatile long requested = -1;
+	private static final Metrics.Histogram SCALE_TIME = Metrics.histogram("iconScale");
+	//For sizes get() had to ask for itself, it doesn't know who's painting
+	private static final Runnable REPAINT_ALL = new Runnable() {
+		@Override
+		public void run() {
+			for(Window window : Window.getWindows())
+				window.repaint();
+		}
+	};
+
+	/** Every icon scaled to one cell size */
+	static class ScaledSet {
+		final int width, height;
+		final ImageIcon[] icons = new ImageIcon[buttonIcons.length];
+
+		ScaledSet(int width, int height){
+			GameEvents.IconScale event = new GameEvents.IconScale();
+			event.begin();
+			long start = System.nanoTime();
+			this.width = width;
+			this.height = height;
+			for(int i = 0; i < icons.length; i++){
+				if(buttonIcons[i] != null)
+					icons[i] = new ImageIcon(scale(buttonIcons[i], width, height));
+			}
+			SCALE_TIME.since(start);
+			event.width = width;
+			event.height = height;
+			event.commit();
+		}
+
+		boolean fits(int width, int height){
+			return this.width == width && this.height == height;
+		}
+	}
+
+	/**
+	 * @param index Icon to fetch, BLANK gives back null
+	 * @param width Cell width in pixels
+	 * @param height Cell height in pixels
+	 * @return The shared icon. Don't modify it. It can still be the last
+	 * size while a rescale's going, so draw it at width x height.
+	 */
+	public static ImageIcon get(int index, int width, int height){
+		if(buttonIcons[index] == null || width <= 0 || height <= 0)
+			return null;
+		ScaledSet set = current;
+		if(set == null){
+			//Nothing to stretch yet, so the very first set gets built right here
+			current = set = new ScaledSet(width, height);
+		}else if(!set.fits(width, height) && requested != key(width, height)){
+			//Painted at a size nobody's rescaled to, so get that going
+			rescale(width, height, REPAINT_ALL);
+		}
+		return set.icons[index];
+	}
+
+	/**
+	 * Call when the cells change size. Scales a new set of icons on a
+	 * background thread, then swaps it in and runs onReady on the EDT
+	 * so the caller can refresh whatever's on screen. If the size changes
+	 * again before that finishes, the stale set gets dropped.
+	 *
+	 * @param width New cell width in pixels
+	 * @param height New cell height in pixels
+	 * @param onReady Run on the EDT once the new icons are in place
+	 */
+	public static void rescale(final int width, final int height, final Runnable onReady){
+		ScaledSet set = current;
+		final long key = key(width, height);
+		if(width <= 0 || height <= 0)
+			return;
+		//Set even when it already fits, so a rescale still going for the
+		//size before doesn't land on top
+		requested = key;
+		if(set != null && set.fits(width, height))
+			return;
+		new SwingWorker<ScaledSet, Void>(){
+			@Override
+			protected ScaledSet doInBackground() {
+				return new ScaledSet(width, height);
+			}
+			@Override
+			protected void done() {
+				if(requested != key)
+					return;
+				try{
+					current = get();
+				}catch(Exception e){
+					return;
+				}
+				onReady.run();
+			}
+		}.execute();
+	}
+
+	private static long key(int width, int height){
+		return ((long)width << 32) | height;
+	}
+
+	/** One-off smooth scale into a fresh image, much cheaper than getScaledInstance */
+	private static BufferedImage scale(ImageIcon source, int width, int height){
+		BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = scaled.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+		g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		g.drawImage(source.getImage(), 0, 0, width, height, null);
+		g.dispose();
+		return scaled;
+	}
+}
@@ -0,0 +1,114 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Best times for one board setup, kept sorted fastest first in a tree so
+ * adding a time is O(log n) however many games have been played. Only the
+ * top CAPACITY stay around, anything slower falls off the end.
+ */
+public class Leaderboard {
+
+	public static final int CAPACITY = 100;
+
+	/** A finished game. Ties go to whoever got there first. */
+	public static class Score implements Comparable<Score> {
+		public final String name;
+		public final long millis;
+		//Board's 3BV and the clicks it took, 0 for scores from before they were kept
+		public final int threeBV, clicks;
+		//Journal sequence number, doubles as the tie breaker
+		final long seq;
+
+		Score(String name, long millis, long seq){
+			this(name, millis, 0, 0, seq);
+		}
+
+		Score(String name, long millis, int threeBV, int clicks, long seq){
+			this.name = name;
+			this.millis = millis;
+			this.threeBV = threeBV;
+			this.clicks = clicks;
+			this.seq = seq;
+		}
+
+		/** @return 3BV cleared per second, 0 if the 3BV wasn't kept */
+		public double threeBVPerSecond(){
+			return millis == 0 ? 0 : threeBV * 1000.0 / millis;
+		}
+
+		/** @return 3BV over clicks, 1 is a perfect game, 0 if not kept */
+		public double efficiency(){
+			return clicks == 0 ? 0 : (double)threeBV / clicks;
+		}
+
+		@Override
+		public int compareTo(Score o) {
+			if(millis != o.millis)
+				return millis < o.millis ? -1 : 1;
+			return Long.compare(seq, o.seq);
+		}
+	}
+
+	/** Width, height and mine count, which board a leaderboard belongs to */
+	public static class Config {
+		public final int width, height, numMines;
+
+		public Config(int width, int height, int numMines){
+			this.width = width;
+			this.height = height;
+			this.numMines = numMines;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Config))
+				return false;
+			Config c = (Config)o;
+			return width == c.width && height == c.height && numMines == c.numMines;
+		}
+
+		@Override
+		public int hashCode() {
+			return (width * 31 + height) * 31 + numMines;
+		}
+
+		@Override
+		public String toString() {
+			return width+"x"+height+", "+numMines+" mines";
+		}
+	}
+
+	private final TreeSet<Score> scores = new TreeSet<Score>();
+
+	/** @return True if the time would make the board */
+	public boolean qualifies(long millis){
+		return scores.size() < CAPACITY || millis < scores.last().millis;
+	}
+
+	/** @return False if it was too slow to make the board */
+	public boolean add(Score score){
+		if(scores.size() >= CAPACITY && scores.last().compareTo(score) < 0)
+			return false;
+		scores.add(score);
+		if(scores.size() > CAPACITY)
+			scores.pollLast();
+		return true;
+	}
+
+	/** @return Up to count of the best scores, fastest first */
+	public List<Score> top(int count){
+		List<Score> top = new ArrayList<Score>(Math.min(count, scores.size()));
+		Iterator<Score> it = scores.iterator();
+		while(top.size() < count && it.hasNext())
+			top.add(it.next());
+		return top;
+	}
+
+	public int size(){
+		return scores.size();
+	}
+}
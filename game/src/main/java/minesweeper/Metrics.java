@@ -0,0 +1,171 @@
+package minesweeper;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms kept in memory for the whole run, cheap
+ * enough to leave on all the time. Grab one by name once, keep it in a
+ * static final, and report() or dump() whenever someone wants to know
+ * where the time's going. GameEvents has the same spots as flight
+ * recorder events, for when a timeline's more use than totals.
+ */
+public class Metrics {
+
+	private static final Map<String, Counter> counters = new TreeMap<String, Counter>();
+	private static final Map<String, Histogram> histograms = new TreeMap<String, Histogram>();
+
+	/** Something that only goes up. Safe to bump from any thread. */
+	public static class Counter {
+		private final LongAdder count = new LongAdder();
+
+		public void increment(){
+			count.increment();
+		}
+
+		public void add(long n){
+			count.add(n);
+		}
+
+		public long get(){
+			return count.sum();
+		}
+	}
+
+	/**
+	 * Spread of nanosecond timings, HdrHistogram style. Values go into
+	 * buckets that double in width every SUB buckets, so anything from a
+	 * nanosecond up to days is kept to within about 3%, in a fixed array,
+	 * and recording is one atomic add with no allocation. Counts, the mean
+	 * and percentiles all get worked out from the buckets when they're
+	 * asked for, so they're only as exact as the buckets are.
+	 */
+	public static class Histogram {
+		private static final int SUB_BITS = 5, SUB = 1 << SUB_BITS;
+		private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS) * SUB);
+		private final AtomicLong max = new AtomicLong();
+
+		public void record(long nanos){
+			if(nanos < 0)
+				nanos = 0;
+			counts.getAndIncrement(bucket(nanos));
+			long top = max.get();
+			while(nanos > top && !max.compareAndSet(top, nanos))
+				top = max.get();
+		}
+
+		/** Records the time from start to now, start being a System.nanoTime() */
+		public void since(long start){
+			record(System.nanoTime() - start);
+		}
+
+		public long count(){
+			long n = 0;
+			for(int i = 0; i < counts.length(); i++)
+				n += counts.get(i);
+			return n;
+		}
+
+		public long max(){
+			return max.get();
+		}
+
+		/** @return Mean taking everything as the middle of its bucket */
+		public double mean(){
+			long n = 0;
+			double sum = 0;
+			for(int i = 0; i < counts.length(); i++){
+				long c = counts.get(i);
+				if(c == 0)
+					continue;
+				n += c;
+				sum += c * ((double)lowest(i) + Math.min(lowest(i + 1) - 1, max.get())) / 2;
+			}
+			return n == 0 ? 0 : sum / n;
+		}
+
+		/**
+		 * @param percent 0 to 100
+		 * @return Most any value in the bucket it falls in could be, 0 if
+		 * nothing's been recorded
+		 */
+		public long percentile(double percent){
+			long n = count(), seen = 0;
+			long rank = Math.max(1, (long)Math.ceil(n * percent / 100));
+			for(int i = 0; i < counts.length(); i++){
+				seen += counts.get(i);
+				if(seen >= rank)
+					return Math.min(lowest(i + 1) - 1, max.get());
+			}
+			return max.get();
+		}
+
+		/** Plain buckets up to SUB, then SUB buckets per power of two */
+		private static int bucket(long value){
+			if(value < SUB)
+				return (int)value;
+			int magnitude = 63 - Long.numberOfLeadingZeros(value);
+			int top = (int)(value >>> (magnitude - SUB_BITS));
+			return (magnitude - SUB_BITS + 1) * SUB + top - SUB;
+		}
+
+		/** @return Smallest value that goes in the bucket */
+		private static long lowest(int bucket){
+			if(bucket < SUB)
+				return bucket;
+			int doublings = bucket / SUB;
+			return (long)(bucket % SUB + SUB) << (doublings - 1);
+		}
+	}
+
+	/** @return The counter with that name, made the first time it's asked for */
+	public static synchronized Counter counter(String name){
+		Counter counter = counters.get(name);
+		if(counter == null)
+			counters.put(name, counter = new Counter());
+		return counter;
+	}
+
+	/** @return The histogram with that name, made the first time it's asked for */
+	public static synchronized Histogram histogram(String name){
+		Histogram histogram = histograms.get(name);
+		if(histogram == null)
+			histograms.put(name, histogram = new Histogram());
+		return histogram;
+	}
+
+	/** @return Every counter and histogram so far, one per line, sorted by name */
+	public static synchronized String report(){
+		StringBuilder out = new StringBuilder();
+		for(Map.Entry<String, Counter> e : counters.entrySet())
+			out.append(String.format("%-16s %d%n", e.getKey(), e.getValue().get()));
+		for(Map.Entry<String, Histogram> e : histograms.entrySet()){
+			Histogram h = e.getValue();
+			if(h.count() == 0)
+				continue;
+			out.append(String.format("%-16s %d, mean %s, p50 %s, p99 %s, max %s%n", e.getKey(),
+					h.count(), formatNanos((long)h.mean()), formatNanos(h.percentile(50)),
+					formatNanos(h.percentile(99)), formatNanos(h.max())));
+		}
+		return out.toString();
+	}
+
+	public static void dump(PrintStream out){
+		out.print(report());
+	}
+
+	/** @return Nanoseconds in whichever unit reads best, like 1.25ms */
+	static String formatNanos(long nanos){
+		if(nanos < 1000)
+			return nanos+"ns";
+		if(nanos < 1000000)
+			return String.format("%.2fus", nanos / 1e3);
+		if(nanos < 1000000000)
+			return String.format("%.2fms", nanos / 1e6);
+		return String.format("%.2fs", nanos / 1e9);
+	}
+}
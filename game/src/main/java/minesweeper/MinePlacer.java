@@ -0,0 +1,98 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Puts mines on a board. Uses Floyd's sampling algorithm, so it draws
+ * exactly numMines distinct cells with one random number each and never
+ * has to retry on a cell that's already mined, no matter how dense the
+ * board is. Everything comes from a seeded SplittableRandom, so the same
+ * seed always gives back the same board.
+ */
+public class MinePlacer {
+
+	private static final Metrics.Histogram PLACE_TIME = Metrics.histogram("placeMines");
+
+	/**
+	 * Plants numMines mines on an empty board and counts up the numbers
+	 * around them. The seed is remembered on the board for debugging.
+	 *
+	 * @param board Board with no mines on it yet
+	 * @param numMines How many mines to place, at most one per cell
+	 * @param seed Seed for the layout, same seed gives the same board
+	 */
+	public static void place(Board board, int numMines, long seed){
+		place(board, numMines, seed, -1);
+	}
+
+	/**
+	 * Same as above, but keeps a first click clear. The cell and its
+	 * neighbours are left empty so the click opens up an area, or if the
+	 * board is too dense for that, just the cell itself.
+	 *
+	 * @param safeCell Cell to keep clear, or -1 for none
+	 */
+	public static void place(Board board, int numMines, long seed, int safeCell){
+		int[] skip = new int[0];
+		if(safeCell >= 0){
+			skip = new int[]{safeCell};
+			int[] block = neighbourhood(board, safeCell);
+			if(numMines <= board.size() - block.length)
+				skip = block;
+		}
+		//Cells are drawn from a virtual range with the skipped ones taken out
+		int cells = board.size() - skip.length;
+		if(numMines < 0 || numMines > cells)
+			throw new IllegalArgumentException(numMines+" mines won't fit on "+cells+" cells");
+		SplittableRandom random = new SplittableRandom(seed);
+		//Floyd: for each j in the last numMines slots pick from [0, j], and if
+		//that's taken then j itself can't be, since it's never been offered yet
+		for(int j = cells - numMines; j < cells; j++){
+			int cell = unskip(random.nextInt(j + 1), skip);
+			if(board.isMine(cell))
+				cell = unskip(j, skip);
+			board.plantMine(cell);
+		}
+		board.setSeed(seed);
+		board.computeAdjacentMines();
+	}
+
+	/**
+	 * Same as place(), for a board someone's about to play, timed into
+	 * Metrics and flight recordings. The simulator and the generators go
+	 * straight to place(), they call it far too often to pay for the clock.
+	 */
+	public static void placeTimed(Board board, int numMines, long seed, int safeCell){
+		GameEvents.PlaceMines event = new GameEvents.PlaceMines();
+		event.begin();
+		long start = System.nanoTime();
+		place(board, numMines, seed, safeCell);
+		PLACE_TIME.since(start);
+		event.cells = board.size();
+		event.mines = numMines;
+		event.commit();
+	}
+
+	/** Maps a virtual cell back onto the board, stepping over the sorted skipped cells */
+	private static int unskip(int cell, int[] skip){
+		for(int skipped : skip){
+			if(skipped > cell)
+				break;
+			cell++;
+		}
+		return cell;
+	}
+
+	/** @return The cell and its neighbours, in ascending order */
+	private static int[] neighbourhood(Board board, int cell){
+		int x = board.xOf(cell), y = board.yOf(cell), count = 0;
+		int[] block = new int[9];
+		for(int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, board.width() - 1); pX++){
+			for(int pY = Math.max(y - 1, 0); pY <= Math.min(y + 1, board.height() - 1); pY++){
+				block[count++] = board.index(pX, pY);
+			}
+		}
+		return Arrays.copyOf(block, count);
+	}
+}
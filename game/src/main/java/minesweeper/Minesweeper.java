@@ -1,3 +1,5 @@
+package minesweeper;
+
 import java.awt.Dimension;
 
 import javax.swing.JFrame;
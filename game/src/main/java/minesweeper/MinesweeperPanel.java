@@ -0,0 +1,1349 @@
+package minesweeper;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.swing.JCheckBoxMenuItem;
+import javax.swing.JComponent;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+@SuppressWarnings("serial")
+public class MinesweeperPanel extends JPanel implements MouseListener {
+
+	//Logical operation data, the board state itself lives in model
+	private int width, height, numMines;
+	private Difficulty diffLevel;
+	//The timer just keeps the label ticking, the actual time is measured
+	//with nanoTime. Banked time from before any pause, plus since the last start
+	private Timer gameClock;
+	private long clockStarted, clockBanked;
+	//Seeds for each new board. Run with -Dminesweeper.seed=N to get the
+	//same sequence of boards every time, handy for debugging
+	private SplittableRandom seeds = Long.getLong("minesweeper.seed") == null ?
+			new SplittableRandom() : new SplittableRandom(Long.getLong("minesweeper.seed"));
+	//Ready mined boards for the standard difficulties, see BoardPool
+	private BoardPool boards;
+	//No guessing games hold off on placing mines until the first click,
+	//then search for a board off the EDT. Clicks wait while it's looking
+	private boolean minesPlaced;
+	private SwingWorker<Long, Void> placing;
+	//Follows along with every reveal for hints and autoplay, null until
+	//there are mines down. Using it at all keeps the game off the high scores
+	private Solver solver;
+	private boolean assisted;
+	//Mine odds overlay, follows the solver. Held off during autoplay so it's
+	//only worked out once at the end rather than after every move
+	private ProbabilityEngine probabilities;
+	private boolean autoplaying;
+	//Moves get played on the engine's own copy of the board, off the EDT,
+	//and come back as deltas that keep model in step. null until there are
+	//mines down. Moves sent and deltas applied are counted so catchUp()
+	//can tell when model has everything
+	private GameEngine engine;
+	private final LinkedBlockingQueue<GameEngine.Delta> deltas = new LinkedBlockingQueue<GameEngine.Delta>();
+	private int movesSent, movesApplied;
+	private final Runnable applyDeltas = new Runnable() {
+		@Override
+		public void run() {
+			for(GameEngine.Delta delta = deltas.poll(); delta != null; delta = deltas.poll())
+				apply(delta);
+		}
+	};
+	//Every move of the game in progress, and when watching one back,
+	//the timer stepping through it and where it's up to
+	private Replay recording;
+	//Every version of the board this game, for undo and redo
+	private BoardHistory history;
+	private Timer playback;
+	private Replay.Cursor playbackMoves;
+	//Boards from a replay are known boards, so they're kept off the scores
+	private boolean watched;
+	//High score file location and the leaderboards, which keep
+	//	themselves saved as scores come in
+	private String scoreLocation = ".hiScores";
+	//Where an unfinished game goes on quit, and comes back from on the next run
+	private String saveLocation = ".savedGame";
+	private ScoreStore scores;
+	//Every finished game, see GameStats. Null if it couldn't be opened,
+	//games just don't get kept then
+	private String statsLocation = ".gameStats";
+	private GameStats stats;
+	//This game's already in the stats, so undoing the end and finishing
+	//again doesn't count it twice
+	private boolean counted;
+	private static final int SHOWN_SCORES = 10, STATS_BINS = 10;
+	private static final Metrics.Histogram NEW_GAME_TIME = Metrics.histogram("newGame"),
+			NO_GUESS_TIME = Metrics.histogram("noGuessBoard");
+	//Longest a no guessing search gets before settling for a safe first click
+	private static final long NO_GUESS_MILLIS = 3000;
+	private static final Metrics.Counter GAMES = Metrics.counter("games"),
+			WINS = Metrics.counter("games.won"), LOSSES = Metrics.counter("games.lost");
+	//Endless mode has its own board and view, null the rest of the time.
+	//model is null while it's going
+	private EndlessBoard endless;
+	private EndlessView endlessView;
+
+	//Menu pieces
+	private JMenuBar menuBar;
+	private JMenuItem easyGame, midGame, hardGame, customize, endlessGame, restart, undo, redo, timings,
+	highScores, statistics, giveUp, quitGame, hint, autoplay, saveReplay, watchReplay,
+	saveGame, loadGame;
+	private JCheckBoxMenuItem noGuessing, showOdds;
+	//Organization, interactive pieces, and UI configuration
+	private JComponent boardPane;
+	//Normal games all share one view and scroll pane, built on the first game
+	private JScrollPane boardScroller;
+	private BoardView board;
+	public JLabel infoLabel; 
+	private Board model;
+
+	/** Basic constructor to init the layout, build a menu and timer, and start a game */
+	public MinesweeperPanel() {
+		setLayout(new BorderLayout());
+		buildMenuBarAndInfo();
+		readHighScores();
+		readStats();
+		boards = new BoardPool(seeds.split());
+		gameClock = new Timer(100, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				updateStatus();
+			}
+		});
+		resumeOrNewGame();
+	}
+
+	/*============================================*/
+	/*============ GAME LOGIC METHODS ============*/
+	/*============================================*/
+
+	/**New game method that sets up the game based on a difficulty.
+	 * For clean resetting, call this and pass in Difficulty.RESET
+	 * 
+	 * @param d Any value of Difficulty
+	 */
+	private void newGame(Difficulty d){
+		this.diffLevel = d;
+		switch (this.diffLevel) {
+		case CUST:
+			//Set's width/height/numMines to user's pref
+			setupBoardByUser(); 
+			break;
+		case ENDLESS:
+			startEndless();
+			return;
+		default:
+			///For standard type difficulty, standard rebuild
+			width = d.width;
+			height = d.height;
+			numMines = d.numMines;
+			//TODO Get resizing calibrated
+			//resize(width, MENU_HEIGHT);
+			break;
+		}
+		startGame(null);
+	}
+
+	/**
+	 * Builds a fresh board at the current width, height and numMines
+	 * 
+	 * @param replay Replay to take the mines from, or null for new ones
+	 */
+	private void startGame(Replay replay){
+		GameEvents.NewGame event = new GameEvents.NewGame();
+		event.begin();
+		long start = System.nanoTime();
+		clearBoard();
+		watched = replay != null;
+		counted = false;
+		minesPlaced = watched ? replay.isPlaced() : !noGuessing.isSelected();
+		//Standard boards come ready mined from the pool
+		Board ready = watched || !minesPlaced ? null : boards.take(diffLevel);
+		model = ready != null ? ready : new Board(width, height);
+		recording = new Replay(width, height, numMines);
+		//Same view as last game, just pointed at the new board
+		showBoard(buildGamePanel());
+		solver = null;
+		probabilities = null;
+		if(ready != null){
+			recording.placed(ready.seed(), -1);
+			startSolver();
+		}else if(watched){
+			if(minesPlaced){
+				MinePlacer.placeTimed(model, numMines, replay.seed(), replay.safeCell());
+				recording.placed(replay.seed(), replay.safeCell());
+				startSolver();
+			}
+		}else if(minesPlaced){
+			setRandomizedMines();
+		}
+		if(minesPlaced)
+			startEngine();
+		history = new BoardHistory(model, recording.moves());
+		assisted = showOdds.isSelected() || watched;
+		refreshOdds();
+		restartClock();
+		updateStatus();
+		NEW_GAME_TIME.since(start);
+		GAMES.increment();
+		event.width = width;
+		event.height = height;
+		event.mines = numMines;
+		event.pooled = ready != null;
+		event.commit();
+	}
+
+	/**
+	 * Picks up the game left unfinished last time, if there was one.
+	 * It's deleted once it's loaded so it only comes back once.
+	 */
+	private void resumeOrNewGame(){
+		File saved = new File(saveLocation);
+		if(saved.exists()){
+			try{
+				resumeGame(SavedGame.load(saved));
+				saved.delete();
+				return;
+			}catch(IOException e){
+				System.err.println("Problem loading the last game... Blame Jake.");
+			}
+		}
+		newGame(Difficulty.EASY);
+	}
+
+	/**
+	 * Carries on a saved game, clock included
+	 */
+	private void resumeGame(SavedGame saved){
+		clearBoard();
+		model = saved.board;
+		recording = saved.replay;
+		width = model.width();
+		height = model.height();
+		numMines = saved.numMines;
+		diffLevel = difficultyOf(width, height, numMines);
+		showBoard(buildGamePanel());
+		solver = null;
+		probabilities = null;
+		watched = saved.watched;
+		counted = false;
+		minesPlaced = saved.minesPlaced;
+		if(minesPlaced){
+			startSolver();
+			startEngine();
+		}
+		history = new BoardHistory(model, recording.moves());
+		assisted = showOdds.isSelected() || saved.assisted || watched;
+		refreshOdds();
+		restartClock();
+		clockBanked = saved.elapsedMillis * 1000000;
+		updateStatus();
+	}
+
+	/**
+	 * Starts a game on a fresh EndlessBoard. There's no winning, the
+	 * score's just how much they clear before hitting a mine, so there's
+	 * no high scores, saving or replays for it, and no solver either.
+	 */
+	private void startEndless(){
+		clearBoard();
+		model = null;
+		history = null;
+		try{
+			endless = new EndlessBoard(seeds.nextLong(), Difficulty.ENDLESS.numMines);
+		}catch(IOException e){
+			informUser("Endless", "Couldn't set up endless mode: "+e.getMessage());
+			newGame(Difficulty.EASY);
+			return;
+		}
+		numMines = 0;
+		endlessView = new EndlessView(endless, new EndlessView.Clicks() {
+			@Override
+			public void reveal(int x, int y) {
+				if(endless.isFlagged(x, y) || endless.isRevealed(x, y))
+					return;
+				if(endless.isMine(x, y)){
+					stopClock();
+					endlessView.showLoss(x, y);
+					JOptionPane.showMessageDialog(MinesweeperPanel.this,
+							"Booo you died :( You cleared "+endless.revealedCount()+" cells.");
+					return;
+				}
+				endless.reveal(x, y);
+				endlessView.repaint();
+				updateStatus();
+			}
+			@Override
+			public void flag(int x, int y) {
+				if(endless.isRevealed(x, y))
+					return;
+				endless.toggleFlag(x, y);
+				endlessView.repaint();
+				updateStatus();
+			}
+		});
+		showBoard(endlessView);
+		setClassicOptions(false);
+		restartClock();
+		updateStatus();
+	}
+
+	/** Finishes with the current game, whichever kind it is, ready for the next */
+	private void clearBoard(){
+		stopPlayback();
+		stopPlacing();
+		stopEngine();
+		if(endless != null){
+			endless.close();
+			endless = null;
+			endlessView = null;
+			setClassicOptions(true);
+		}
+	}
+
+	/**
+	 * Puts a board's view in the middle of the window. Only swaps and lays
+	 * out when it's a different component from the one already showing.
+	 */
+	private void showBoard(JComponent pane){
+		if(pane == boardPane)
+			return;
+		if(boardPane != null)
+			remove(boardPane);
+		boardPane = pane;
+		add(boardPane, BorderLayout.CENTER);
+		revalidate();
+		repaint();
+	}
+
+	/** Menu items that only make sense on a normal board, off during endless mode */
+	private void setClassicOptions(boolean enabled){
+		for(JMenuItem item : new JMenuItem[]{restart, undo, redo, giveUp, hint, autoplay, showOdds,
+				highScores, saveGame, saveReplay})
+			item.setEnabled(enabled);
+	}
+
+	/** @return The game as it stands, for saving */
+	private SavedGame currentGame(){
+		return new SavedGame(model, recording, numMines, elapsedMillis(),
+				minesPlaced, assisted, watched);
+	}
+
+	/** @return True if there's a game going that's worth saving */
+	private boolean gameInProgress(){
+		return model != null && !board.isGameOver()
+				&& (model.remainingLocations() < model.size() || model.flags() > 0);
+	}
+
+	/** @return The standard difficulty with that setup, or CUST */
+	private static Difficulty difficultyOf(int width, int height, int numMines){
+		for(Difficulty d : Difficulty.values())
+			if(d != Difficulty.CUST && d != Difficulty.ENDLESS && d.width == width && d.height == height && d.numMines == numMines)
+				return d;
+		return Difficulty.CUST;
+	}
+
+	/**
+	 * Clean reset of the current board, just make it
+	 * replayable. No new content.
+	 */
+	private void resetCurrentGame(){
+		stopPlacing();
+		recording.record(Replay.RESET, 0, elapsedMillis());
+		if(engine != null){
+			send(GameEngine.RESET, 0);
+			catchUp();
+		}else{
+			model.reset();
+		}
+		board.reset();
+		history = new BoardHistory(model, recording.moves());
+		counted = false;
+		if(minesPlaced)
+			startSolver();
+		assisted = showOdds.isSelected() || watched;
+		refreshOdds();
+		restartClock();
+		updateStatus();
+	}
+
+	/**
+	 * Sends a reveal to the engine, what it opened comes back through apply()
+	 *
+	 * @param cell Cell clicked for current move
+	 */
+	private void makeMove(int cell){
+		if(!minesPlaced){
+			findBoard(cell);
+			return;
+		}
+		recording.record(Replay.REVEAL, cell, elapsedMillis());
+		send(GameEngine.REVEAL, cell);
+	}
+
+	/**
+	 * Looks for a no guessing board built around the first click on a
+	 * background thread, then puts the mines down and plays the click.
+	 * Anything that ends the game first cancels it, see stopPlacing().
+	 */
+	private void findBoard(final int cell){
+		if(placing != null)
+			return;
+		final long from = seeds.nextLong();
+		placing = new SwingWorker<Long, Void>(){
+			@Override
+			protected Long doInBackground() {
+				long start = System.nanoTime();
+				long seed = NoGuessGenerator.findSeed(width, height, numMines, cell, from, NO_GUESS_MILLIS);
+				NO_GUESS_TIME.since(start);
+				return seed;
+			}
+			@Override
+			protected void done() {
+				//A new game or a reset got in first
+				if(placing != this || isCancelled())
+					return;
+				placing = null;
+				long seed;
+				try{
+					seed = get();
+				}catch(Exception e){
+					System.err.println("Couldn't find a no guessing board. Blame Jake.");
+					seed = from;
+				}
+				MinePlacer.placeTimed(model, numMines, seed, cell);
+				recording.placed(seed, cell);
+				minesPlaced = true;
+				startSolver();
+				startEngine();
+				makeMove(cell);
+			}
+		};
+		placing.execute();
+		updateStatus();
+	}
+
+	/** Cancels a no guessing search still going, its board never gets used */
+	private void stopPlacing(){
+		if(placing == null)
+			return;
+		//Cleared first, cancelling on the EDT runs done() straight away
+		SwingWorker<Long, Void> search = placing;
+		placing = null;
+		search.cancel(true);
+	}
+
+	/**
+	 * Click on a revealed number with that many flags around it, opens
+	 * all its other neighbours at once
+	 */
+	private void chord(int cell){
+		//Flags still on their way count too, and a chord that opens
+		//nothing isn't a move, so it's not recorded or counted as a click
+		catchUp();
+		if(!model.canChord(cell))
+			return;
+		recording.record(Replay.CHORD, cell, elapsedMillis());
+		send(GameEngine.CHORD, cell);
+	}
+
+	/**
+	 * Takes back the last move that changed anything, or the one that
+	 * lost. Anything taken back can be redone until there's a new move.
+	 * Games with undos don't count for high scores.
+	 */
+	private void undo(){
+		catchUp();
+		BoardHistory.Version from = history.current(), to;
+		if(board.isGameOver() && !model.isCleared())
+			to = from; //Losing didn't change the board, just carry on from here
+		else if(history.canUndo())
+			to = history.undo();
+		else
+			return;
+		recording.truncate(to.moves);
+		travel(from, to);
+	}
+
+	/**
+	 * Puts back the last move undone, which goes back in the replay as
+	 * if it were played again now
+	 */
+	private void redo(){
+		if(board.isGameOver() || !history.canRedo())
+			return;
+		catchUp();
+		BoardHistory.Version from = history.current(), to = history.redo(recording.moves() + 1);
+		recording.record(to.action, to.cell, elapsedMillis());
+		travel(from, to);
+	}
+
+	/** Moves model and the engine's board to another version, and carries on from there */
+	private void travel(BoardHistory.Version from, BoardHistory.Version to){
+		assisted = true;
+		if(engine != null)
+			engine.restore(from, to);
+		model.restore(from, to);
+		board.reset();
+		//Just the cells that changed, like after a move
+		if(solver != null)
+			solver.restored(from, to);
+		if(model.isCleared()){
+			winGame();
+			return;
+		}
+		startClock();
+		refreshOdds();
+		updateStatus();
+	}
+
+	/*============ GAME ENGINE ============*/
+
+	/** Fresh engine on a mirror of model, call once the mines are down */
+	private void startEngine(){
+		stopEngine();
+		engine = new GameEngine(model.mirror(), new GameEngine.Listener() {
+			@Override
+			public void applied(GameEngine.Delta delta) {
+				deltas.add(delta);
+				SwingUtilities.invokeLater(applyDeltas);
+			}
+		});
+	}
+
+	/** Shuts down the engine, throwing away any deltas not applied yet */
+	private void stopEngine(){
+		if(engine != null){
+			engine.close();
+			engine = null;
+		}
+		deltas.clear();
+		movesSent = movesApplied = 0;
+	}
+
+	private void send(int action, int cell){
+		movesSent++;
+		engine.submit(action, cell);
+	}
+
+	/**
+	 * @return Moves in the recording up to the last one applied to model.
+	 * Every move's recorded just before it's sent, so the ones still on
+	 * their way are the last few recorded.
+	 */
+	private int movesPlayed(){
+		return recording.moves() - (movesSent - movesApplied);
+	}
+
+	/**
+	 * Waits for every move sent so far to come back and be applied, for
+	 * anything that needs model exactly up to date, like autoplay or saving
+	 */
+	private void catchUp(){
+		while(movesApplied < movesSent){
+			try{
+				apply(deltas.take());
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Brings model up to date with one move played by the engine, and
+	 * shows it. Deltas always arrive in the order the moves were sent.
+	 */
+	private void apply(GameEngine.Delta delta){
+		//Already done to model when it was sent, and not a move
+		if(delta.action == GameEngine.RESTORE)
+			return;
+		movesApplied++;
+		switch(delta.action){
+		case GameEngine.RESET:
+			model.reset();
+			return;
+		case GameEngine.FLAG:
+			if(model.isFlagged(delta.cell) != delta.flagged){
+				model.toggleFlag(delta.cell);
+				history.flagged(delta.cell, movesPlayed());
+				board.repaintCell(delta.cell);
+				updateStatus();
+			}
+			return;
+		}
+		if(delta.opened.length > 0){
+			model.markRevealed(delta.opened);
+			history.opened(delta.action, delta.cell, delta.opened, movesPlayed());
+			solver.revealed(delta.opened);
+			board.showHint(-1);
+			board.repaintCells(delta.opened);
+		}
+		//They might have given up while it was on its way
+		if(board.isGameOver())
+			return;
+		if(delta.exploded >= 0)
+			loseGame(delta.exploded);
+		else if(delta.won)
+			winGame();
+		else if(!autoplaying && delta.opened.length > 0)
+			refreshOdds();
+	}
+
+	/** Fresh solver and odds for the board as it stands */
+	private void startSolver(){
+		solver = new Solver(model);
+		probabilities = new ProbabilityEngine(model, solver);
+	}
+
+	/** Recomputes the odds overlay if it's on, and clears it once the game's over */
+	private void refreshOdds(){
+		if(showOdds.isSelected() && probabilities != null && !board.isGameOver())
+			board.showOdds(probabilities.compute());
+		else
+			board.showOdds(null);
+	}
+
+	/**
+	 * Handles game winning - this is reached if all non-bomb
+	 * items are clicked, so we reveal the mines and ensure that
+	 * flagged mines are just deactivated, which allows them to
+	 * keep the flag icon.
+	 */
+	private void winGame() {
+		WINS.increment();
+		stopClock();
+		countGame(GameStats.WON);
+		board.showWin();
+		if(!assisted)
+			enterHighScore();
+		if(playback == null)
+			displayHighScores();
+	}
+
+	/**
+	 * Caused by clicking a mine or giving up.
+	 * 
+	 * @param explosion Mine that was clicked, -1 for giving up
+	 */
+	private void loseGame(int explosion){
+		LOSSES.increment();
+		stopClock();
+		countGame(explosion < 0 ? GameStats.GAVE_UP : GameStats.LOST);
+		board.showLoss(explosion);
+		if(playback == null)
+			JOptionPane.showMessageDialog(this, "Booo you died :(");
+	}
+
+	/**
+	 * Confirm shutdown. Saves an unfinished game to pick up next time,
+	 * closes the score journal, pauses game
+	 * clock when activated, and if cancelled, resumes the clock
+	 * 
+	 * Currently returns an int as a result of making this a valid
+	 * parameter for the method JFrame.setDefaultCloseOperation,
+	 * which didn't work
+	 */
+	public void quitGame(){
+		stopClock();
+		stopPlayback();
+		if(endless != null)
+			endless.close();
+		catchUp();
+		if(gameInProgress()){
+			try{
+				currentGame().save(new File(saveLocation));
+			}catch(IOException e){
+				System.err.println("Problem saving the game... Blame Jake.");
+			}
+		}
+		scores.close();
+		if(stats != null)
+			stats.close();
+		boards.close();
+		System.exit(0);
+	}
+
+	/**Updater for the info label */
+	private void updateStatus() {
+		if(endless != null){
+			infoLabel.setText("Cleared: "+endless.revealedCount()+" Flags: "+endless.flags()
+					+" Time: "+elapsedMillis() / 1000);
+			return;
+		}
+		if(placing != null){
+			infoLabel.setText("Finding a board with no guessing... Time: "+elapsedMillis() / 1000);
+			return;
+		}
+		int flags = model == null ? 0 : model.flags();
+		infoLabel.setText("Mines Left: "+Math.max(numMines-flags, 0)+" Time: "+elapsedMillis() / 1000);
+	}
+
+	/** Zeroes the game clock and sets it going */
+	private void restartClock(){
+		clockBanked = 0;
+		clockStarted = System.nanoTime();
+		gameClock.start();
+	}
+
+	/** Starts or resumes the game clock, does nothing if it's going already */
+	private void startClock(){
+		if(gameClock.isRunning())
+			return;
+		clockStarted = System.nanoTime();
+		gameClock.start();
+	}
+
+	/** Pauses the game clock, keeping the time so far */
+	private void stopClock(){
+		if(!gameClock.isRunning())
+			return;
+		clockBanked += System.nanoTime() - clockStarted;
+		gameClock.stop();
+		updateStatus();
+	}
+
+	/** @return Time played on this game, not counting pauses */
+	private long elapsedMillis(){
+		long nanos = clockBanked;
+		if(gameClock != null && gameClock.isRunning())
+			nanos += System.nanoTime() - clockStarted;
+		return nanos / 1000000;
+	}
+
+	/**
+	 * Points out a cell that's certainly safe, or lets them know
+	 * there's nothing left but guessing
+	 */
+	private void showHint(){
+		assisted = true;
+		int cell = solver == null ? -1 : solver.nextSafeMove();
+		if(cell < 0)
+			informUser("Hint", "Nothing's certain from here, you'll have to guess.");
+		else
+			board.showHint(cell);
+	}
+
+	/**
+	 * Lets the solver play every move it can work out, flags included,
+	 * and hands back control once it would have to guess
+	 */
+	private void autoplay(){
+		assisted = autoplaying = true;
+		int played = solver == null ? 0 : solver.autoplay(new Solver.Moves() {
+			//The solver looks at model straight after each move, so wait for it
+			@Override
+			public void makeMove(int cell) {
+				MinesweeperPanel.this.makeMove(cell);
+				catchUp();
+			}
+			@Override
+			public void flag(int cell) {
+				MinesweeperPanel.this.flag(cell);
+				catchUp();
+			}
+		});
+		autoplaying = false;
+		refreshOdds();
+		if(played == 0 && !board.isGameOver())
+			informUser("Autoplay", "Nothing's certain from here, you'll have to guess.");
+	}
+
+	/**Handles flagging/deflagging a button. Occurs
+	 * on right click of a valid, unrevealed location
+	 * 
+	 * @param move Valid, unrevealed cell clicked 
+	 * on board to flag.
+	 */
+	private void flag(int move){
+		recording.record(Replay.FLAG, move, elapsedMillis());
+		if(engine != null){
+			send(GameEngine.FLAG, move);
+			return;
+		}
+		//No guessing board with no mines yet, nothing for an engine to do
+		model.toggleFlag(move);
+		history.flagged(move, recording.moves());
+		board.repaintCell(move);
+		updateStatus();
+	}
+	
+	/*=============================================*/
+	/*============ REPLAY SAVE AND PLAY ============*/
+	/*=============================================*/
+
+	/**
+	 * Saves every move of the current game so far, see Replay
+	 */
+	private void saveReplay(){
+		JFileChooser chooser = new JFileChooser();
+		if(chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+			return;
+		try{
+			recording.save(chooser.getSelectedFile());
+		}catch(IOException e){
+			informUser("Save Replay", "Couldn't save the replay: "+e.getMessage());
+		}
+	}
+
+	/**
+	 * Loads a replay and plays it back at the speed it was played. Clicks
+	 * on the board are ignored until it's done, then it's theirs to carry
+	 * on with. Hints, autoplay or giving up take over early. Watched
+	 * boards never count for high scores.
+	 */
+	private void watchReplay(){
+		JFileChooser chooser = new JFileChooser();
+		if(chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION)
+			return;
+		Replay replay;
+		try{
+			replay = Replay.load(chooser.getSelectedFile());
+		}catch(IOException e){
+			informUser("Watch Replay", "Couldn't read that replay: "+e.getMessage());
+			return;
+		}
+		width = replay.width();
+		height = replay.height();
+		numMines = replay.numMines();
+		diffLevel = difficultyOf(width, height, numMines);
+		startGame(replay);
+		playbackMoves = replay.cursor();
+		playback = new Timer(0, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				playMove(playbackMoves.action(), playbackMoves.cell());
+				scheduleNextMove();
+			}
+		});
+		playback.setRepeats(false);
+		scheduleNextMove();
+	}
+
+	/** Sets the playback timer for the next move, or ends playback if that was the last */
+	private void scheduleNextMove(){
+		if(playback == null)
+			return;
+		if(!playbackMoves.next()){
+			stopPlayback();
+			return;
+		}
+		playback.setInitialDelay((int)Math.min(playbackMoves.delay(), Integer.MAX_VALUE));
+		playback.start();
+	}
+
+	/** Same rules as clicking, moves on a finished game only count if they're resets */
+	private void playMove(int action, int cell){
+		if(action == Replay.RESET){
+			resetCurrentGame();
+		}else if(board.isGameOver()){
+			return;
+		}else if(action == Replay.CHORD){
+			chord(cell);
+		}else if(!model.isRevealed(cell)){
+			if(action == Replay.FLAG)
+				flag(cell);
+			else if(!model.isFlagged(cell))
+				makeMove(cell);
+		}
+	}
+
+	private void stopPlayback(){
+		if(playback == null)
+			return;
+		playback.stop();
+		playback = null;
+		playbackMoves = null;
+	}
+
+	/**
+	 * Saves the game in progress to a file of their choosing
+	 */
+	private void saveGame(){
+		if(!gameInProgress()){
+			informUser("Save Game", "Nothing to save, make a move first.");
+			return;
+		}
+		stopClock();
+		catchUp();
+		JFileChooser chooser = new JFileChooser();
+		if(chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION){
+			try{
+				currentGame().save(chooser.getSelectedFile());
+			}catch(IOException e){
+				informUser("Save Game", "Couldn't save the game: "+e.getMessage());
+			}
+		}
+		startClock();
+	}
+
+	/**
+	 * Swaps the current game for one from a file
+	 */
+	private void loadGame(){
+		JFileChooser chooser = new JFileChooser();
+		if(chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION)
+			return;
+		try{
+			resumeGame(SavedGame.load(chooser.getSelectedFile()));
+		}catch(IOException e){
+			informUser("Load Game", "Couldn't load that game: "+e.getMessage());
+		}
+	}
+
+	/*================================================================*/
+	/*============HIGH SCORE HANDLING, SAVING, AND LOADING============*/
+	/*================================================================*/
+
+	/**
+	 * Display high scores after every game. Entering a high
+	 * score is handled by winGame()
+	 */
+	private void displayHighScores() {
+		//Prevent this from counting as time used to play
+		stopClock();
+		//Build a table to use as the message for display on a popup
+		StringBuilder scoreTable = new StringBuilder();
+		scoreTable.append(String.format("%-25s%s\n","Player:","Time:"));
+		List<Leaderboard.Score> top = scores.top(width, height, numMines, SHOWN_SCORES);
+		for(Leaderboard.Score score : top){
+			scoreTable.append(String.format("%-36s\n", score.name));
+			scoreTable.append(String.format("%36s\n", formatTime(score.millis)));
+			//Scores from before 3BV was kept don't have it
+			if(score.threeBV > 0)
+				scoreTable.append(String.format("%36s\n", String.format("3BV %d, %.2f/s, %.0f%% eff",
+						score.threeBV, score.threeBVPerSecond(), score.efficiency() * 100)));
+		}
+		if(top.isEmpty())
+			scoreTable.append("Nobody's beaten this one yet!\n");
+		String title = diffLevel == Difficulty.CUST ?
+				width+"x"+height+", "+numMines+" mines" : diffLevel.toString();
+		informUser("High Scores for "+title, scoreTable.toString());
+		//If the game isn't over, resume clock
+		if(!board.isGameOver())
+			startClock();
+	}
+
+	/**
+	 * Adds the game that just finished to the stats. Replays being
+	 * watched were someone else's game, so they're left out.
+	 */
+	private void countGame(byte outcome){
+		if(stats == null || watched || counted)
+			return;
+		counted = true;
+		try{
+			stats.add(System.currentTimeMillis(), width, height, numMines, outcome,
+					elapsedMillis(), recording.clicks(), model.flags(), model.threeBV());
+		}catch(IOException e){
+			System.err.println("Problem saving game stats... Blame Jake.");
+		}
+	}
+
+	/**
+	 * Shows how every game on this setup has gone, with a rough chart of
+	 * the winning times, and a line for each other setup that's been played
+	 */
+	private void displayStats(){
+		if(stats == null){
+			informUser("Statistics", "Game stats couldn't be opened, nothing's being kept.");
+			return;
+		}
+		stopClock();
+		StringBuilder out = new StringBuilder();
+		GameStats.Summary here = null;
+		//One pass for everything, this setup's just picked out of it
+		List<GameStats.Summary> all = stats.summarize();
+		Leaderboard.Config config = new Leaderboard.Config(width, height, numMines);
+		for(GameStats.Summary summary : all)
+			if(summary.config.equals(config))
+				here = summary;
+		if(here == null){
+			out.append("No games finished on this board yet.\n");
+		}else{
+			out.append(String.format("%d games, %d won (%.1f%%)\n", here.games, here.wins, here.winRate() * 100));
+			if(here.wins > 0){
+				out.append(String.format("Best %s, median %s, 90%% under %s, %.2f 3BV/s\n",
+						formatTime(here.percentile(0)), formatTime(here.percentile(50)),
+						formatTime(here.percentile(90)), here.threeBVPerSecond()));
+				int[] bins = here.histogram(STATS_BINS);
+				long binMillis = here.binMillis(STATS_BINS);
+				int most = 1;
+				for(int count : bins)
+					most = Math.max(most, count);
+				for(int i = 0; i < bins.length; i++){
+					String bar = new String(new char[(int)((long)bins[i] * 30 / most)]).replace('\0', '#');
+					out.append(String.format("%8s%s %s\n", formatTime(i * binMillis),
+							i == bins.length - 1 ? "+" : " ", bar));
+				}
+			}
+		}
+		if(all.size() > (here == null ? 0 : 1)){
+			out.append("\nEverything else:\n");
+			for(GameStats.Summary summary : all)
+				if(summary != here)
+					out.append(String.format("%dx%d, %d mines: %d games, %.1f%% won, median %s\n",
+							summary.config.width, summary.config.height, summary.config.numMines,
+							summary.games, summary.winRate() * 100, formatTime(summary.percentile(50))));
+		}
+		String title = diffLevel == Difficulty.CUST ?
+				width+"x"+height+", "+numMines+" mines" : diffLevel.toString();
+		informUser("Statistics for "+title, out.toString());
+		if(!board.isGameOver())
+			startClock();
+	}
+
+	/**
+	 * Allows entering of a name for high score table.
+	 */
+	private void enterHighScore() {
+		long millis = elapsedMillis();
+		if(!scores.isHighScore(width, height, numMines, millis)){
+			return; //Not a high score. Get outta here.
+		}
+		//Try twice to get a name, redundancy is redundantly safe
+		String playerName = promptUser("New High Score on "+this.diffLevel+"!",
+				"Well done! Would you kindly give us your name?");
+		if(playerName == null || playerName.trim().length() < 1){
+			playerName = promptUser("New High Score on "+this.diffLevel+"!",
+					"Seriously though. Not even a nickname?");
+			if(playerName == null || playerName.trim().length() < 1){
+				informUser("Score Not Recorded", 
+						"Well, you're lame. Check out everyone that did better than you!");
+				return;
+			}
+		}
+		//Goes straight to the journal, nothing to save at quit
+		scores.add(width, height, numMines, playerName, millis, model.threeBV(), recording.clicks());
+	}
+
+	/** @return Milliseconds as seconds, like 12.345 */
+	private static String formatTime(long millis){
+		return String.format("%d.%03d", millis / 1000, millis % 1000);
+	}
+
+	/*===========================================================*/
+	/*============ SCORE SAVE AND LOAD FUNCTIONALITY ============*/
+	/*===========================================================*/
+	
+	/**
+	 * Reads high scores from disk. Called on construction, and from
+	 * then on every new score gets saved the moment it's entered.
+	 * See ScoreStore for the file layout.
+	 */
+	private void readHighScores(){
+		try{
+			scores = new ScoreStore(new File(scoreLocation));
+		}catch(Exception e){
+			System.err.println("Problem reading high scores. Blame Jake.");
+			System.exit(0);
+		}
+	}
+
+	/**
+	 * Opens the game stats, games get added as they finish. Unlike the
+	 * high scores, playing on without them is fine.
+	 */
+	private void readStats(){
+		try{
+			stats = new GameStats(new File(statsLocation));
+		}catch(IOException e){
+			System.err.println("Problem opening game stats. Blame Jake.");
+		}
+	}
+
+	//================USER INTERACTION UTILITIES==============//
+
+	/**Yes or no confirmation dialog box
+	 * 
+	 * @param title Title of the confirmation popup
+	 * @param message Message of the popup
+	 * @return True iff confirmed
+	 */
+//	private boolean userConfirms(String title, String message){
+//		return JOptionPane.showConfirmDialog(this, message, title, 
+//				JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE) 
+//				== JOptionPane.YES_OPTION;
+//	}
+
+	/**Informational popup to user
+	 * 
+	 * @param title Title of the info popup
+	 * @param message Message of the popup
+	 */
+	private void informUser(String title, String message){
+		JOptionPane.showMessageDialog(this, message, title, JOptionPane.PLAIN_MESSAGE);
+	}
+
+	/**Prompt user for input as a string, used one string at a time
+	 * 
+	 * @param title Title of the info popup
+	 * @param message Message of the popup
+	 */
+	private String promptUser(String title, String message){
+		return JOptionPane.showInputDialog(this, message, title, JOptionPane.QUESTION_MESSAGE);
+	}
+	
+
+	//==========================================================
+	//============INTERFACE CONSTRUCTION METHODS================
+	//==========================================================
+
+	/**
+	 * Builds the view the first time, and after that just hands it the
+	 * new model. It only lays itself out again when the size changed.
+	 *
+	 * @return A scrolling panel holding the painted game board
+	 */
+	private JComponent buildGamePanel(){
+		if(board == null){
+			board = new BoardView(model);
+			board.addMouseListener(this);
+			boardScroller = new JScrollPane(board);
+		}else{
+			board.setModel(model);
+		}
+		return boardScroller;
+	}
+
+	/**
+	 * Handle a custom game round by the user. Pop up a small form
+	 * to ask for values in a certain range, and input those on
+	 * confirmation. 
+	 */
+	private void setupBoardByUser(){
+		
+		//TODO Custom: Any values from 8 × 8 or 9 × 9 to 30 × 24 field, with 10 to 668 mines.
+		/*
+		 * A type of input panel class may be really handy here?
+		 * Use sliders for all values, then button to fire setup event?
+		 * Run input listener on text to give hints on input?
+		width = parse(input(Ask for width));
+		height = parse(input(Ask for height));
+		numMines = parse(input(Ask for mine num));
+		 */
+		informUser("Customize", "This is not what you meant to click on.");
+		newGame(Difficulty.EASY);
+	}
+
+	/**
+	 * Sets the mines in the game board from the next seed, see MinePlacer
+	 */
+	private void setRandomizedMines() {
+		long seed = seeds.nextLong();
+		MinePlacer.placeTimed(model, numMines, seed, -1);
+		recording.placed(seed, -1);
+		startSolver();
+	}
+
+	//============Game Menu Setup================
+
+	/**
+	 * Sets up the menu bar at the top of the window
+	 */
+	private void buildMenuBarAndInfo(){
+		//Build up the full menu
+		menuBar = new JMenuBar();
+		menuBar.add(buildFileMenu());
+		//Set up status
+		infoLabel = new JLabel();
+		numMines = 0;
+		add(infoLabel, BorderLayout.SOUTH);
+		updateStatus();
+	}
+
+	/**
+	 * @return Game options menu with Save/Load and other features
+	 */
+	private JMenu buildFileMenu() {
+		JMenu gameMenu = new JMenu("   Menu   ");
+
+		//Build new game sub-menu
+		JMenu newGame = new JMenu("New Game");
+		(easyGame = new JMenuItem("Easy")).addMouseListener(this);
+		(midGame = new JMenuItem("Intermediate")).addMouseListener(this);
+		(hardGame = new JMenuItem("Hard")).addMouseListener(this);
+		(customize = new JMenuItem("Custom...")).addMouseListener(this);
+		(endlessGame = new JMenuItem("Endless")).addMouseListener(this);
+		newGame.add(easyGame);
+		newGame.add(midGame);
+		newGame.add(hardGame);
+		newGame.add(customize);
+		newGame.add(endlessGame);
+
+		//Build options sub-menu
+		JMenu opt = new JMenu("Options");
+		(highScores = new JMenuItem("High Scores")).addMouseListener(this);
+		(statistics = new JMenuItem("Statistics")).addMouseListener(this);
+		(restart = new JMenuItem("Restart Game")).addMouseListener(this);
+		(undo = new JMenuItem("Undo")).addMouseListener(this);
+		(redo = new JMenuItem("Redo")).addMouseListener(this);
+		(giveUp = new JMenuItem("Give Up")).addMouseListener(this);
+		(hint = new JMenuItem("Hint")).addMouseListener(this);
+		(autoplay = new JMenuItem("Autoplay")).addMouseListener(this);
+		(saveReplay = new JMenuItem("Save Replay...")).addMouseListener(this);
+		(watchReplay = new JMenuItem("Watch Replay...")).addMouseListener(this);
+		(saveGame = new JMenuItem("Save Game...")).addMouseListener(this);
+		(timings = new JMenuItem("Timings")).addMouseListener(this);
+		(loadGame = new JMenuItem("Load Game...")).addMouseListener(this);
+		//Read when the next game starts, so no listener needed
+		noGuessing = new JCheckBoxMenuItem("No Guessing");
+		showOdds = new JCheckBoxMenuItem("Show Mine Odds");
+		showOdds.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if(showOdds.isSelected())
+					assisted = true;
+				refreshOdds();
+			}
+		});
+		opt.add(highScores);
+		opt.add(statistics);
+		opt.addSeparator();
+		opt.add(restart);
+		opt.add(undo);
+		opt.add(redo);
+		opt.add(giveUp);
+		opt.addSeparator();
+		opt.add(hint);
+		opt.add(autoplay);
+		opt.add(showOdds);
+		opt.add(noGuessing);
+		opt.addSeparator();
+		opt.add(timings);
+
+		//Finish up the file menu
+		(quitGame = new JMenuItem("Quit")).addMouseListener(this);
+		gameMenu.add(newGame);
+		gameMenu.add(opt);
+		gameMenu.addSeparator();
+		gameMenu.add(saveGame);
+		gameMenu.add(loadGame);
+		gameMenu.addSeparator();
+		gameMenu.add(saveReplay);
+		gameMenu.add(watchReplay);
+		gameMenu.addSeparator();
+		gameMenu.add(quitGame);
+		return gameMenu;
+	}
+
+	/**Allows access to the built menu bar for the top-level frame
+	 * to set it's menu to the menu constructed here
+	 * 
+	 * @return The menu bar for this program. 
+	 */
+	public JMenuBar menuBar(){
+		return this.menuBar;
+	}
+	
+	@Override
+	public void mousePressed(MouseEvent e) {
+		//All actions are mouse driven, no hotkeys implemented yet
+		Object selection = e.getComponent();
+		//Menu items still see the mouse when they're switched off
+		if(selection instanceof JMenuItem && !((JMenuItem)selection).isEnabled())
+			return;
+		//New game actions
+		if(selection == easyGame){
+			newGame(Difficulty.EASY);
+		}else if(selection == midGame){
+			newGame(Difficulty.INT);
+		}else if(selection == hardGame){
+			newGame(Difficulty.HARD); 
+		}else if(selection == customize){
+			newGame(Difficulty.CUST); 
+		}else if(selection == endlessGame){
+			newGame(Difficulty.ENDLESS);
+		}else if(selection == restart){
+			stopPlayback();
+			resetCurrentGame();
+		}else if(selection == undo){
+			stopPlayback();
+			undo();
+		}else if(selection == redo){
+			stopPlayback();
+			redo();
+		}
+		//Giving up, only works if game clock is moving
+		else if(selection == giveUp){
+			stopPlayback();
+			if(gameClock.isRunning())
+				loseGame(-1); 
+		} 
+		//Solver help, same rule as giving up
+		else if(selection == hint){
+			stopPlayback();
+			if(!board.isGameOver())
+				showHint();
+		} else if(selection == autoplay){
+			stopPlayback();
+			if(!board.isGameOver())
+				autoplay();
+		}
+		//High score and quit actions
+		else if(selection == highScores){
+			displayHighScores(); 
+		} else if(selection == statistics){
+			displayStats();
+		} else if(selection == timings){
+			informUser("Timings", Metrics.report());
+		} else if(selection == quitGame){
+			quitGame();
+		}
+		//Saved games and replays
+		else if(selection == saveGame){
+			saveGame();
+		} else if(selection == loadGame){
+			loadGame();
+		} else if(selection == saveReplay){
+			saveReplay();
+		} else if(selection == watchReplay){
+			watchReplay();
+		} else if(selection == board && playback == null && placing == null){
+			//Only hidden cells of a game in progress can be clicked,
+			//or revealed numbers to chord them. Nothing while the no
+			//guessing board's still being found
+			int move = board.cellAt(e.getPoint());
+			board.clicked(System.nanoTime());
+			if(move >= 0 && !board.isGameOver() && !model.isRevealed(move)){
+				if(SwingUtilities.isLeftMouseButton(e) &&
+						!model.isFlagged(move))
+					makeMove(move);
+				if(SwingUtilities.isRightMouseButton(e) ){
+					flag(move);
+				}
+			}else if(move >= 0 && !board.isGameOver() && engine != null
+					&& !SwingUtilities.isRightMouseButton(e)){
+				chord(move);
+			}
+		}
+	}
+
+	/*============ UNIMPLEMENTED METHODS FROM MouseListener============*/
+	@Override
+	public void mouseReleased(MouseEvent e) {}
+	@Override
+	public void mouseClicked(MouseEvent e) {}
+	@Override
+	public void mouseEntered(MouseEvent e) {}
+	@Override
+	public void mouseExited(MouseEvent e) {}
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Finds boards that can be cleared from the first click without ever
+ * having to guess. Candidate layouts are tried a batch at a time, one
+ * per core on the common ForkJoinPool, and each gets played through by
+ * the Solver. Candidates are numbered off the seed and the lowest
+ * numbered one that works wins, so the same seed and first click always
+ * give the same board no matter how the threads get scheduled, unless
+ * a time budget runs out first.
+ */
+public class NoGuessGenerator {
+
+	//Give up after this many layouts, some densities just don't have any
+	private static final int MAX_CANDIDATES = 100000;
+
+	/**
+	 * Searches with no time limit, so the same seed and first click always
+	 * give the same board. See the other findSeed for the parameters.
+	 */
+	public static long findSeed(int width, int height, int numMines, int firstClick, long seed){
+		return findSeed(width, height, numMines, firstClick, seed, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param width Board width
+	 * @param height Board height
+	 * @param numMines Number of mines
+	 * @param firstClick Cell the player opened with, kept clear of mines
+	 * @param seed Seed to number the candidates from
+	 * @param budgetMillis How long to keep looking, checked between batches
+	 * @return Seed to hand MinePlacer.place along with firstClick. If no
+	 * layout turned up in time, or the thread got interrupted, it's a
+	 * plain board with a safe first click.
+	 */
+	public static long findSeed(final int width, final int height, final int numMines,
+			final int firstClick, final long seed, long budgetMillis){
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int batch = Math.max(pool.getParallelism(), 1);
+		long started = System.nanoTime();
+		for(long start = 0; start < MAX_CANDIDATES; start += batch){
+			if(Thread.currentThread().isInterrupted()
+					|| (System.nanoTime() - started) / 1000000 >= budgetMillis)
+				break;
+			List<Callable<Boolean>> candidates = new ArrayList<Callable<Boolean>>(batch);
+			for(int i = 0; i < batch; i++){
+				final long candidate = seed + start + i;
+				candidates.add(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						Board board = new Board(width, height);
+						MinePlacer.place(board, numMines, candidate, firstClick);
+						return Solver.solvesWithoutGuessing(board, firstClick);
+					}
+				});
+			}
+			List<Future<Boolean>> results = pool.invokeAll(candidates);
+			for(int i = 0; i < batch; i++){
+				try{
+					if(results.get(i).get())
+						return seed + start + i;
+				}catch(Exception e){
+					throw new IllegalStateException("Board generation failed", e);
+				}
+			}
+		}
+		return seed;
+	}
+}
@@ -0,0 +1,188 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * A bit plane that never changes once it's made. Setting bits hands back
+ * a new plane and leaves the old one as it was, and the two share every
+ * part the change didn't touch, so keeping hundreds of versions around
+ * costs about what the changes did, not hundreds of boards.
+ *
+ * The bits are kept in a tree: leaves of LEAF_WORDS longs, under nodes of
+ * FANOUT children each. A change copies the leaves it lands in and the
+ * nodes on the way down to them, and nothing else. An all clear plane is
+ * one clear leaf and one node per level, however big it is. Comparing
+ * two versions skips whatever they share, see diff().
+ */
+class PersistentBits {
+
+	//Words per leaf, 1024 cells
+	static final int LEAF_WORDS = 16;
+	private static final int LEAF_SHIFT = 10, FANOUT_SHIFT = 5, FANOUT = 1 << FANOUT_SHIFT;
+
+	/** Gets the words that differ between two versions, see diff() */
+	interface Changes {
+		void word(int index, long from, long to);
+	}
+
+	//long[] leaf if depth is 0, otherwise Object[] of FANOUT children
+	private final Object root;
+	private final int depth;
+
+	private PersistentBits(Object root, int depth){
+		this.root = root;
+		this.depth = depth;
+	}
+
+	/** @return A plane of at least that many bits, all clear */
+	static PersistentBits empty(int bits){
+		int depth = depthFor(bits);
+		Object node = new long[LEAF_WORDS];
+		for(int level = 0; level < depth; level++){
+			Object[] parent = new Object[FANOUT];
+			Arrays.fill(parent, node);
+			node = parent;
+		}
+		return new PersistentBits(node, depth);
+	}
+
+	/**
+	 * @param words Bits to start with, 64 a word, copied
+	 * @return A plane holding those bits, clear leaves all shared
+	 */
+	static PersistentBits copyOf(long[] words){
+		int depth = depthFor(words.length * 64);
+		long[] clear = new long[LEAF_WORDS];
+		return new PersistentBits(build(words, 0, depth, clear), depth);
+	}
+
+	private static Object build(long[] words, int from, int level, long[] clear){
+		if(level == 0){
+			long[] leaf = Arrays.copyOfRange(words, Math.min(from, words.length),
+					Math.min(from + LEAF_WORDS, words.length));
+			leaf = Arrays.copyOf(leaf, LEAF_WORDS);
+			return Arrays.equals(leaf, clear) ? clear : leaf;
+		}
+		Object[] node = new Object[FANOUT];
+		int span = LEAF_WORDS << (FANOUT_SHIFT * (level - 1));
+		for(int i = 0; i < FANOUT; i++)
+			node[i] = build(words, from + i * span, level - 1, clear);
+		return node;
+	}
+
+	/** @return Levels of nodes above the leaves, enough for bits */
+	private static int depthFor(int bits){
+		int depth = 0;
+		long capacity = 1L << LEAF_SHIFT;
+		while(capacity < bits){
+			capacity <<= FANOUT_SHIFT;
+			depth++;
+		}
+		return depth;
+	}
+
+	boolean get(int bit){
+		Object node = root;
+		for(int level = depth; level > 0; level--)
+			node = ((Object[])node)[(bit >>> (LEAF_SHIFT + FANOUT_SHIFT * (level - 1))) & (FANOUT - 1)];
+		return (((long[])node)[(bit >>> 6) & (LEAF_WORDS - 1)] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * @param bits Bits to set, any order, repeats are fine
+	 * @return This plane with them set, or this one if there's nothing to do
+	 */
+	PersistentBits with(int[] bits){
+		if(bits.length == 0)
+			return this;
+		return new PersistentBits(set(root, depth, byLeaf(bits), 0, bits.length), depth);
+	}
+
+	/**
+	 * @return The bits grouped by leaf, in leaf order, which is all set()
+	 * needs. A sort's fine for a few, but a big fill gets counted into
+	 * its leaves instead, which doesn't care how many bits there are.
+	 */
+	private int[] byLeaf(int[] bits){
+		int leaves = 1 << (FANOUT_SHIFT * depth);
+		if(bits.length < leaves){
+			int[] sorted = bits.clone();
+			Arrays.sort(sorted);
+			return sorted;
+		}
+		int[] start = new int[leaves + 1];
+		for(int bit : bits)
+			start[(bit >>> LEAF_SHIFT) + 1]++;
+		for(int i = 0; i < leaves; i++)
+			start[i + 1] += start[i];
+		int[] grouped = new int[bits.length];
+		for(int bit : bits)
+			grouped[start[bit >>> LEAF_SHIFT]++] = bit;
+		return grouped;
+	}
+
+	/** @return This plane with one bit flipped */
+	PersistentBits flip(int bit){
+		return new PersistentBits(flip(root, depth, bit), depth);
+	}
+
+	/** Copies the node and sets sorted[from, to) in it, all of which land under it, in leaf order */
+	private static Object set(Object node, int level, int[] sorted, int from, int to){
+		if(level == 0){
+			long[] leaf = ((long[])node).clone();
+			for(int i = from; i < to; i++)
+				leaf[(sorted[i] >>> 6) & (LEAF_WORDS - 1)] |= 1L << sorted[i];
+			return leaf;
+		}
+		Object[] copy = ((Object[])node).clone();
+		int shift = LEAF_SHIFT + FANOUT_SHIFT * (level - 1);
+		while(from < to){
+			int child = (sorted[from] >>> shift) & (FANOUT - 1), end = from + 1;
+			while(end < to && ((sorted[end] >>> shift) & (FANOUT - 1)) == child)
+				end++;
+			copy[child] = set(copy[child], level - 1, sorted, from, end);
+			from = end;
+		}
+		return copy;
+	}
+
+	private static Object flip(Object node, int level, int bit){
+		if(level == 0){
+			long[] leaf = ((long[])node).clone();
+			leaf[(bit >>> 6) & (LEAF_WORDS - 1)] ^= 1L << bit;
+			return leaf;
+		}
+		Object[] copy = ((Object[])node).clone();
+		int child = (bit >>> (LEAF_SHIFT + FANOUT_SHIFT * (level - 1))) & (FANOUT - 1);
+		copy[child] = flip(copy[child], level - 1, bit);
+		return copy;
+	}
+
+	/**
+	 * Walks every word that's different in the other version, skipping
+	 * anything the two share, so it costs about what changed between them.
+	 *
+	 * @param to Plane of the same size to compare against
+	 */
+	void diff(PersistentBits to, Changes changes){
+		if(to.depth != depth)
+			throw new IllegalArgumentException("Planes are different sizes");
+		diff(root, to.root, depth, 0, changes);
+	}
+
+	private static void diff(Object from, Object to, int level, int word, Changes changes){
+		if(from == to)
+			return;
+		if(level == 0){
+			long[] a = (long[])from, b = (long[])to;
+			for(int i = 0; i < LEAF_WORDS; i++)
+				if(a[i] != b[i])
+					changes.word(word + i, a[i], b[i]);
+			return;
+		}
+		Object[] a = (Object[])from, b = (Object[])to;
+		int span = LEAF_WORDS << (FANOUT_SHIFT * (level - 1));
+		for(int i = 0; i < FANOUT; i++)
+			diff(a[i], b[i], level - 1, word + i * span, changes);
+	}
+}
@@ -0,0 +1,924 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Exact mine odds for every hidden cell, for when deduction runs out.
+ *
+ * Hidden cells next to a revealed number make up the frontier. The frontier
+ * splits into components that don't share any numbers, and each component
+ * gets its valid mine layouts counted on its own, tallied by how many
+ * mines the layout uses. Counting shares the work between every partial
+ * layout that leaves the numbers in the same state, so it stays exact on
+ * long frontiers, see Component.enumerate(). The components are then
+ * combined with the interior, the hidden cells next to no number, by
+ * weighting each total against the number of ways to spread the leftover
+ * mines over the interior.
+ *
+ * Components are kept from one call to the next. The solver says which
+ * cells changed, see Solver.watch(), and only the components around them
+ * get grouped again, so a refresh costs about the size of the move plus
+ * the frontier rather than the size of the board. New components are
+ * enumerated in parallel, and any that came out just the same as one
+ * they replaced keep its counts.
+ */
+public class ProbabilityEngine {
+
+	//Give up on a component with more numbers than this part way decided
+	//at once, or more states than this at any point. Its cells get treated
+	//like interior cells, which is close but not exact, see Odds
+	private static final int MAX_OPEN = 15, MAX_STATES = 20000;
+	//Stands in for the odds of cells that get the interior's
+	private static final double INTERIOR = -1;
+	//Mine totals this far below the likeliest are dropped from products,
+	//they'd underflow to nothing as soon as they were weighted anyway
+	private static final double TINY = 1e-300;
+	//Mine totals for part of the frontier that are this much less likely
+	//than the likeliest don't get passed down, see weigh()
+	private static final double UNLIKELY = 1e-20;
+
+	/**
+	 * Chance of a mine for each cell, 0 for revealed cells and known safe
+	 * ones, 1 for known mines. Every compute() hands back the same one,
+	 * brought up to date.
+	 */
+	public static class Odds {
+		//Per cell, or INTERIOR. The interior all shares one value, so it
+		//doesn't need every cell rewriting when that changes
+		private final double[] cells;
+		private double interior;
+		//Something was too tangled to count, which throws the interior off
+		private boolean folded;
+
+		Odds(int size){
+			cells = new double[size];
+		}
+
+		public double get(int cell){
+			double odds = cells[cell];
+			return odds == INTERIOR ? interior : odds;
+		}
+
+		/**
+		 * @return True if the cell's odds are only an estimate. That's cells
+		 * in components too tangled to count, which got folded into the
+		 * interior, and the interior along with them.
+		 */
+		public boolean isApproximate(int cell){
+			return folded && cells[cell] == INTERIOR;
+		}
+
+		/** @return True if every cell's odds are exact */
+		public boolean isExact(){
+			return !folded;
+		}
+	}
+
+	private final Board board;
+	private final Solver solver;
+	private final Odds odds;
+	//Component each frontier cell and number is in, -1 for none, and the
+	//components by that number, null where one's been dropped
+	private final int[] owner;
+	private final List<Component> components = new ArrayList<Component>();
+	private int[] free = new int[16];
+	private int freeCount;
+	//Cells the solver says changed since the last call, each on once. Past
+	//a point it's cheaper to start over, and they stop being kept
+	private final long[] changed;
+	private int[] dirty = new int[64];
+	private int dirtyCount;
+	private boolean rebuild = true;
+	//Numbers waiting to be grouped into components
+	private int[] seeds = new int[64];
+	private int seedCount;
+	//Cells already taken by the group being built
+	private final long[] grouped;
+
+	/**
+	 * @param board Board to work on
+	 * @param solver Solver following the same board, its deductions are
+	 * taken as given. Only one engine can follow a solver at a time.
+	 */
+	public ProbabilityEngine(Board board, Solver solver){
+		this.board = board;
+		this.solver = solver;
+		int size = board.size(), words = (size + 63) >>> 6;
+		odds = new Odds(size);
+		owner = new int[size];
+		changed = new long[words];
+		grouped = new long[words];
+		solver.watch(new Solver.Watcher() {
+			@Override
+			public void changed(int cell) {
+				dirty(cell);
+			}
+		});
+	}
+
+	/** @return Chance of a mine for each cell, exact unless the Odds say otherwise */
+	public Odds compute(){
+		solver.solve();
+		//Counts from the components taken apart, in case one comes back the same
+		Map<Key, Tally> dropped = new HashMap<Key, Tally>();
+		if(rebuild){
+			rebuild = false;
+			Arrays.fill(changed, 0L);
+			dirty = new int[64];
+			dirtyCount = 0;
+			Arrays.fill(owner, -1);
+			components.clear();
+			freeCount = 0;
+			for(int cell = 0; cell < board.size(); cell++){
+				odds.cells[cell] = status(cell);
+				if(isNumber(cell))
+					seed(cell);
+			}
+		}else{
+			for(int i = 0; i < dirtyCount; i++){
+				int cell = dirty[i];
+				clear(changed, cell);
+				odds.cells[cell] = status(cell);
+				//Numbers around it might have different cells or needs now
+				int x = board.xOf(cell), y = board.yOf(cell);
+				for(int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, board.width() - 1); pX++){
+					for(int pY = Math.max(y - 1, 0); pY <= Math.min(y + 1, board.height() - 1); pY++){
+						int n = board.index(pX, pY);
+						if(owner[n] >= 0)
+							drop(owner[n], dropped);
+						if(isNumber(n))
+							seed(n);
+					}
+				}
+			}
+			dirtyCount = 0;
+		}
+		List<Component> pending = new ArrayList<Component>();
+		while(seedCount > 0){
+			int start = seeds[--seedCount];
+			//Taken by a group already, or hidden again by an undo
+			if(owner[start] >= 0 || !isNumber(start))
+				continue;
+			Component component = group(start, dropped);
+			if(component == null)
+				continue;
+			component.tally = dropped.get(component.key);
+			if(component.tally == null)
+				pending.add(component);
+		}
+		enumerate(pending);
+		combine();
+		return odds;
+	}
+
+	/** Counts the new components, in parallel if there's more than one */
+	private void enumerate(final List<Component> pending){
+		if(pending.isEmpty())
+			return;
+		List<Callable<Tally>> work = new ArrayList<Callable<Tally>>();
+		for(final Component component : pending){
+			work.add(new Callable<Tally>() {
+				@Override
+				public Tally call() {
+					return component.enumerate();
+				}
+			});
+		}
+		List<Future<Tally>> results = work.size() == 1 ?
+				null : ForkJoinPool.commonPool().invokeAll(work);
+		for(int i = 0; i < pending.size(); i++){
+			try{
+				pending.get(i).tally = results == null ? work.get(0).call() : results.get(i).get();
+			}catch(ExecutionException e){
+				throw new IllegalStateException("Probability enumeration failed", e.getCause());
+			}catch(Exception e){
+				throw new IllegalStateException("Probability enumeration failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Floods out from a number over the undecided cells it shares with
+	 * other numbers, and makes a component of everything it reaches
+	 *
+	 * @return The new component, or null if the number has no undecided cells
+	 */
+	private Component group(int start, Map<Key, Tally> dropped){
+		int[] numbers = {start}, cells = new int[8];
+		int numberCount = 1, cellCount = 0;
+		set(grouped, start);
+		for(int next = 0; next < numberCount; next++){
+			int x = board.xOf(numbers[next]), y = board.yOf(numbers[next]);
+			for(int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, board.width() - 1); pX++){
+				for(int pY = Math.max(y - 1, 0); pY <= Math.min(y + 1, board.height() - 1); pY++){
+					int cell = board.index(pX, pY);
+					if(get(grouped, cell) || !undecided(cell))
+						continue;
+					set(grouped, cell);
+					if(cellCount == cells.length)
+						cells = Arrays.copyOf(cells, cellCount * 2);
+					cells[cellCount++] = cell;
+					for(int n : neighbours(cell)){
+						if(get(grouped, n) || !isNumber(n))
+							continue;
+						//Shouldn't happen, everything touching a change got
+						//dropped already, but one that's joined on can't stay
+						if(owner[n] >= 0)
+							drop(owner[n], dropped);
+						set(grouped, n);
+						if(numberCount == numbers.length)
+							numbers = Arrays.copyOf(numbers, numberCount * 2);
+						numbers[numberCount++] = n;
+					}
+				}
+			}
+		}
+		for(int i = 0; i < numberCount; i++)
+			clear(grouped, numbers[i]);
+		for(int i = 0; i < cellCount; i++)
+			clear(grouped, cells[i]);
+		if(cellCount == 0)
+			return null;
+		Component component = new Component(Arrays.copyOf(numbers, numberCount), Arrays.copyOf(cells, cellCount));
+		int id = freeCount > 0 ? free[--freeCount] : components.size();
+		if(id == components.size())
+			components.add(component);
+		else
+			components.set(id, component);
+		for(int number : component.constraints)
+			owner[number] = id;
+		for(int cell : component.cells)
+			owner[cell] = id;
+		return component;
+	}
+
+	/** Takes a component apart, its numbers get grouped again */
+	private void drop(int id, Map<Key, Tally> dropped){
+		Component component = components.get(id);
+		components.set(id, null);
+		if(freeCount == free.length)
+			free = Arrays.copyOf(free, freeCount * 2);
+		free[freeCount++] = id;
+		if(component.tally != null)
+			dropped.put(component.key, component.tally);
+		for(int cell : component.cells){
+			owner[cell] = -1;
+			odds.cells[cell] = status(cell);
+		}
+		for(int number : component.constraints){
+			owner[number] = -1;
+			seed(number);
+		}
+	}
+
+	private void seed(int number){
+		if(seedCount == seeds.length)
+			seeds = Arrays.copyOf(seeds, seedCount * 2);
+		seeds[seedCount++] = number;
+	}
+
+	/** Keeps a cell the solver says changed, for the next compute() */
+	private void dirty(int cell){
+		if(rebuild || get(changed, cell))
+			return;
+		if(dirtyCount == dirty.length){
+			//Following a change this big costs about what starting over does
+			if(dirtyCount >= board.size() / 8){
+				rebuild = true;
+				return;
+			}
+			dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+		}
+		set(changed, cell);
+		dirty[dirtyCount++] = cell;
+	}
+
+	/**
+	 * Weights every component's mine totals against the rest of the board
+	 * and fills in the odds. Components that were too big to enumerate get
+	 * folded into the interior.
+	 */
+	private void combine(){
+		int interior = solver.undecidedCells();
+		boolean folded = false;
+		List<Component> exact = new ArrayList<Component>();
+		for(Component component : components){
+			if(component == null)
+				continue;
+			if(component.tally.ways == null){
+				folded = true;
+				for(int cell : component.cells)
+					odds.cells[cell] = INTERIOR;
+			}else{
+				exact.add(component);
+				interior -= component.cells.length;
+			}
+		}
+		int minesLeft = board.numMines() - solver.minesFound();
+		minesLeft = Math.max(minesLeft, 0);
+		double[] spread = binomialWeights(interior, minesLeft);
+		//Ways to place low + t mines over all the exact components together
+		Product all = exact.isEmpty() ? null : new Product(exact, 0, exact.size());
+		double[] ways = all == null ? new double[]{1} : all.ways;
+		int low = all == null ? 0 : all.low;
+		double[] outside = new double[ways.length];
+		double total = 0, interiorMines = 0;
+		for(int t = 0; t < outside.length && low + t <= minesLeft; t++){
+			outside[t] = spread[minesLeft - low - t];
+			double weight = ways[t] * outside[t];
+			total += weight;
+			interiorMines += weight * (minesLeft - low - t);
+		}
+		odds.interior = interior == 0 || total == 0 ? 0 : interiorMines / total / interior;
+		odds.folded = folded;
+		if(all != null)
+			weigh(all, outside);
+	}
+
+	/**
+	 * Ways over a run of components together by mine total, ways[t] being
+	 * low + t mines, built as a tree of halves so weigh() can work out
+	 * everything but each component without redoing the rest every time.
+	 * Scaled so the biggest is 1, with the TINY ends trimmed off, which
+	 * keeps the products of thousands of components short.
+	 */
+	private static class Product {
+		final Component component;
+		final Product left, right;
+		final double[] ways;
+		final int low;
+
+		Product(List<Component> exact, int from, int to){
+			if(to - from == 1){
+				component = exact.get(from);
+				left = right = null;
+				ways = component.tally.ways;
+				low = component.tally.low;
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			component = null;
+			left = new Product(exact, from, mid);
+			right = new Product(exact, mid, to);
+			double[] all = scaled(convolve(left.ways, right.ways));
+			int first = 0, last = all.length - 1;
+			while(first < last && all[first] < TINY)
+				first++;
+			while(last > first && all[last] < TINY)
+				last--;
+			ways = Arrays.copyOfRange(all, first, last + 1);
+			low = left.low + right.low + first;
+		}
+	}
+
+	/**
+	 * Fills in the odds for every component under a product
+	 *
+	 * @param outside For each mine total of the product, the weight of
+	 * everything else on the board, the interior and the other components
+	 */
+	private void weigh(Product product, double[] outside){
+		if(product.component == null){
+			//Only the totals with any real chance of being the one matter
+			double[] ways = product.ways;
+			double top = 0;
+			for(int t = 0; t < ways.length; t++)
+				top = Math.max(top, ways[t] * outside[t]);
+			int from = 0, to = ways.length - 1;
+			while(from < to && ways[from] * outside[from] < top * UNLIKELY)
+				from++;
+			while(to > from && ways[to] * outside[to] < top * UNLIKELY)
+				to--;
+			//Trimmed off the product, so its totals start further up
+			int shift = product.low - product.left.low - product.right.low;
+			weigh(product.left, scaled(correlate(product.right.ways, outside, from, to, shift,
+					product.left.ways.length)));
+			weigh(product.right, scaled(correlate(product.left.ways, outside, from, to, shift,
+					product.right.ways.length)));
+			return;
+		}
+		Component component = product.component;
+		double[] ways = component.tally.ways;
+		double norm = 0;
+		for(int k = 0; k < ways.length; k++)
+			norm += ways[k] * outside[k];
+		for(int i = 0; i < component.cells.length; i++){
+			double mine = 0;
+			for(int k = 0; k < ways.length; k++)
+				mine += component.tally.mines[i][k] * outside[k];
+			odds.cells[component.cells[i]] = norm == 0 ? 0 : mine / norm;
+		}
+	}
+
+	/*============ COMPONENTS ============*/
+
+	/** One independent chunk of the frontier */
+	private class Component {
+		//Hidden cells and the numbered cells constraining them, both sorted
+		final int[] cells, constraints, needs;
+		//Local cell indexes each constraint covers
+		final int[][] covers;
+		final Key key;
+		Tally tally;
+
+		Component(int[] constraints, int[] cells){
+			//Sorted so the same component always gets the same key
+			Arrays.sort(constraints);
+			Arrays.sort(cells);
+			this.constraints = constraints;
+			this.cells = cells;
+			needs = new int[constraints.length];
+			covers = new int[constraints.length][];
+			int[] local = new int[8];
+			for(int i = 0; i < constraints.length; i++){
+				int need = board.adjacentMines(constraints[i]), count = 0;
+				for(int n : neighbours(constraints[i])){
+					if(solver.isKnownMine(n))
+						need--;
+					else if(undecided(n))
+						local[count++] = Arrays.binarySearch(cells, n);
+				}
+				needs[i] = need;
+				covers[i] = Arrays.copyOf(local, count);
+			}
+			key = new Key(constraints, needs, cells);
+		}
+
+		/**
+		 * Counts every mine layout that satisfies all the constraints, by
+		 * mine total, and per cell how many of them have a mine there.
+		 *
+		 * Cells get decided one at a time, in an order that walks along the
+		 * component. All that matters about the cells decided so far is how
+		 * many mines each constraint that's still open has got, so every
+		 * layout that agrees on that gets counted together, and a frontier
+		 * only has a few constraints open at any point however long it is.
+		 * A pass forward counts the ways to reach each of those states, a
+		 * pass back counts the ways to finish from each, and the layouts
+		 * with a mine on a cell are the ways through it with a mine placed.
+		 */
+		Tally enumerate(){
+			int n = cells.length;
+			//Which constraints each cell is under
+			int[][] under = new int[n][];
+			int[] counts = new int[n];
+			for(int[] cover : covers)
+				for(int c : cover)
+					counts[c]++;
+			for(int i = 0; i < n; i++)
+				under[i] = new int[counts[i]];
+			Arrays.fill(counts, 0);
+			for(int j = 0; j < covers.length; j++)
+				for(int c : covers[j])
+					under[c][counts[c]++] = j;
+			int[] order = order(under);
+			Step[] steps = steps(order, under);
+			if(steps == null)
+				return new Tally(0, null, null);
+			//Forward, ways to reach each state from the start
+			Layer[] forward = new Layer[n + 1];
+			forward[0] = new Layer(0, 1);
+			forward[0].add(0, new double[]{1});
+			for(int b = 0; b < n; b++){
+				Layer from = forward[b], to = new Layer(from.low, from.span + 1);
+				for(int i = 0; i < from.size(); i++){
+					for(int pick = 0; pick <= 1; pick++){
+						long next = steps[b].next(from.keys.get(i), pick);
+						if(next >= 0)
+							to.accumulate(next, from.ways.get(i), pick);
+					}
+				}
+				if(to.size() == 0 || to.size() > MAX_STATES)
+					return new Tally(0, null, null);
+				to.trim();
+				forward[b + 1] = to;
+			}
+			//Back, ways to finish from each state that can be reached
+			Layer[] back = new Layer[n + 1];
+			back[n] = new Layer(0, 1);
+			back[n].add(0, new double[]{1});
+			for(int b = n - 1; b >= 0; b--){
+				Layer after = back[b + 1], here = new Layer(after.low, after.span + 1);
+				for(int i = 0; i < forward[b].size(); i++){
+					long key = forward[b].keys.get(i);
+					for(int pick = 0; pick <= 1; pick++){
+						long next = steps[b].next(key, pick);
+						if(next >= 0)
+							here.accumulate(key, after.ways.get(after.index.get(next)), pick);
+					}
+					if(!here.index.containsKey(key))
+						here.add(key, new double[here.span]);
+				}
+				here.trim();
+				back[b] = here;
+			}
+			//Every layout, and through each cell the ones with a mine on it
+			double[] all = back[0].ways.get(0);
+			int low = back[0].low;
+			double[][] mines = new double[n][];
+			for(int b = 0; b < n; b++){
+				double[] ways = new double[all.length], mine = new double[all.length];
+				Layer from = forward[b], after = back[b + 1];
+				for(int i = 0; i < from.size(); i++){
+					for(int pick = 0; pick <= 1; pick++){
+						long next = steps[b].next(from.keys.get(i), pick);
+						if(next < 0)
+							continue;
+						double[] rest = after.ways.get(after.index.get(next));
+						int offset = from.low + pick + after.low - low;
+						addProduct(ways, from.ways.get(i), rest, offset);
+						if(pick == 1)
+							addProduct(mine, from.ways.get(i), rest, offset);
+					}
+				}
+				//Each pass was scaled on its own, so bring it back in line with all
+				double scale = max(ways) == 0 ? 0 : max(all) / max(ways);
+				for(int t = 0; t < mine.length; t++)
+					mine[t] *= scale;
+				mines[order[b]] = mine;
+			}
+			return new Tally(low, all, mines);
+		}
+
+		/**
+		 * @return Cells breadth first over the constraints, starting from
+		 * one end of the component so the constraints that are part way
+		 * decided at any point are just the ones around the front
+		 */
+		private int[] order(int[][] under){
+			int[] visit = breadthFirst(breadthFirst(0, under)[constraints.length - 1], under);
+			int[] order = new int[cells.length];
+			boolean[] placed = new boolean[cells.length];
+			int filled = 0;
+			for(int j : visit){
+				for(int c : covers[j]){
+					if(!placed[c]){
+						placed[c] = true;
+						order[filled++] = c;
+					}
+				}
+			}
+			return order;
+		}
+
+		/** @return Constraints in the order a breadth first walk from start reaches them */
+		private int[] breadthFirst(int start, int[][] under){
+			int[] queue = new int[constraints.length];
+			boolean[] seen = new boolean[constraints.length];
+			int head = 0, tail = 0;
+			//Components are connected, but anything missed would still need a place
+			for(int next = start; tail < queue.length; next = (next + 1) % queue.length){
+				if(seen[next])
+					continue;
+				seen[next] = true;
+				queue[tail++] = next;
+				while(head < tail){
+					for(int c : covers[queue[head++]]){
+						for(int j : under[c]){
+							if(!seen[j]){
+								seen[j] = true;
+								queue[tail++] = j;
+							}
+						}
+					}
+				}
+			}
+			return queue;
+		}
+
+		/**
+		 * @return How deciding each cell in order moves the state on, or
+		 * null if too many constraints are open at once to fit in a key
+		 */
+		private Step[] steps(int[] order, int[][] under){
+			int n = cells.length;
+			int[] pos = new int[n], first = new int[constraints.length], last = new int[constraints.length];
+			for(int b = 0; b < n; b++)
+				pos[order[b]] = b;
+			Arrays.fill(first, n);
+			for(int j = 0; j < covers.length; j++){
+				for(int c : covers[j]){
+					first[j] = Math.min(first[j], pos[c]);
+					last[j] = Math.max(last[j], pos[c]);
+				}
+			}
+			//Constraints part way decided, in the order their counts sit in a key
+			int[] slot = new int[constraints.length];
+			Arrays.fill(slot, -1);
+			int[] open = new int[0];
+			Step[] steps = new Step[n];
+			for(int b = 0; b < n; b++){
+				int c = order[b];
+				Step step = steps[b] = new Step(under[c].length);
+				for(int k = 0; k < under[c].length; k++){
+					int j = under[c][k];
+					step.underSlot[k] = slot[j];
+					step.need[k] = needs[j];
+					for(int other : covers[j])
+						if(pos[other] > b)
+							step.after[k]++;
+				}
+				int[] next = new int[open.length + under[c].length];
+				int count = 0;
+				for(int j : open)
+					if(last[j] != b)
+						next[count++] = j;
+				for(int j : under[c])
+					if(first[j] == b && last[j] > b)
+						next[count++] = j;
+				if(count > MAX_OPEN)
+					return null;
+				next = Arrays.copyOf(next, count);
+				step.from = new int[count];
+				step.adds = new boolean[count];
+				for(int k = 0; k < count; k++){
+					int j = next[k];
+					step.from[k] = slot[j];
+					for(int u : under[c])
+						step.adds[k] |= u == j;
+				}
+				for(int j : open)
+					slot[j] = -1;
+				for(int k = 0; k < count; k++)
+					slot[next[k]] = k;
+				open = next;
+			}
+			return steps;
+		}
+	}
+
+	/**
+	 * Deciding one cell in enumerate(). A state is the mines each open
+	 * constraint has so far, 4 bits apiece in a long.
+	 */
+	private static class Step {
+		//Slot of each constraint over the cell before it's decided, -1 if it
+		//starts here, what it needs, and its cells still to come after this one
+		final int[] underSlot, need, after;
+		//For each slot after, the slot it came from or -1 if it's new, and
+		//whether it's over this cell
+		int[] from;
+		boolean[] adds;
+
+		Step(int under){
+			underSlot = new int[under];
+			need = new int[under];
+			after = new int[under];
+		}
+
+		/** @return The state after deciding the cell, or -1 if that breaks a constraint */
+		long next(long key, int pick){
+			for(int k = 0; k < underSlot.length; k++){
+				int placed = (underSlot[k] < 0 ? 0 : count(key, underSlot[k])) + pick;
+				if(placed > need[k] || placed + after[k] < need[k])
+					return -1;
+			}
+			long next = 0;
+			for(int k = 0; k < from.length; k++){
+				long placed = (from[k] < 0 ? 0 : count(key, from[k])) + (adds[k] ? pick : 0);
+				next |= placed << (4 * k);
+			}
+			return next;
+		}
+
+		private static int count(long key, int slot){
+			return (int)(key >>> (4 * slot)) & 15;
+		}
+	}
+
+	/**
+	 * States at one point in enumerate(), with the ways to each by mine
+	 * total, ways[t] being low + t mines. Kept scaled so the biggest is 1,
+	 * the counts themselves would run past what a double holds.
+	 */
+	private static class Layer {
+		final Map<Long, Integer> index = new HashMap<Long, Integer>();
+		final List<Long> keys = new ArrayList<Long>();
+		final List<double[]> ways = new ArrayList<double[]>();
+		int low, span;
+
+		Layer(int low, int span){
+			this.low = low;
+			this.span = span;
+		}
+
+		int size(){
+			return keys.size();
+		}
+
+		void add(long key, double[] counts){
+			index.put(key, keys.size());
+			keys.add(key);
+			ways.add(counts);
+		}
+
+		/** Adds counts, from a layer with the same low, shifted up by pick mines */
+		void accumulate(long key, double[] counts, int pick){
+			Integer at = index.get(key);
+			if(at == null){
+				at = keys.size();
+				add(key, new double[span]);
+			}
+			double[] into = ways.get(at);
+			for(int t = 0; t < counts.length; t++)
+				into[t + pick] += counts[t];
+		}
+
+		/** Drops mine totals nothing reaches and scales the biggest count to 1 */
+		void trim(){
+			int from = span, to = 0;
+			double top = 0;
+			for(double[] counts : ways){
+				for(int t = 0; t < span; t++){
+					if(counts[t] != 0){
+						from = Math.min(from, t);
+						to = Math.max(to, t + 1);
+						top = Math.max(top, counts[t]);
+					}
+				}
+			}
+			if(from >= to)
+				from = to = 0;
+			for(int i = 0; i < ways.size(); i++){
+				double[] counts = Arrays.copyOfRange(ways.get(i), from, Math.max(to, from + 1));
+				if(top > 0)
+					for(int t = 0; t < counts.length; t++)
+						counts[t] /= top;
+				ways.set(i, counts);
+			}
+			low += from;
+			span = Math.max(to - from, 1);
+		}
+	}
+
+	/**
+	 * Layouts of a component by mine total, and per cell how many have a
+	 * mine there, index t being low + t mines. Scaled, only the ratios
+	 * mean anything.
+	 */
+	private static class Tally {
+		final int low;
+		//Both null if the component was too big to enumerate
+		final double[] ways;
+		final double[][] mines;
+
+		Tally(int low, double[] ways, double[][] mines){
+			this.low = low;
+			this.ways = ways;
+			this.mines = mines;
+		}
+	}
+
+	/** Cache key, the exact constraints and cells a component was built from */
+	private static class Key {
+		final int[] data;
+		final int hash;
+
+		Key(int[] constraints, int[] needs, int[] cells){
+			data = new int[constraints.length * 2 + cells.length];
+			for(int i = 0; i < constraints.length; i++){
+				data[i * 2] = constraints[i];
+				data[i * 2 + 1] = needs[i];
+			}
+			System.arraycopy(cells, 0, data, constraints.length * 2, cells.length);
+			hash = Arrays.hashCode(data);
+		}
+
+		@Override
+		public boolean equals(Object o){
+			return o instanceof Key && Arrays.equals(data, ((Key)o).data);
+		}
+
+		@Override
+		public int hashCode(){
+			return hash;
+		}
+	}
+
+	/*============ HELPERS ============*/
+
+	private boolean undecided(int cell){
+		return !board.isRevealed(cell) && !solver.isKnownMine(cell) && !solver.isKnownSafe(cell);
+	}
+
+	/** @return A revealed number, which might constrain the cells around it */
+	private boolean isNumber(int cell){
+		return board.isRevealed(cell) && board.adjacentMines(cell) > 0;
+	}
+
+	/** @return What a cell's odds are when it's in no component */
+	private double status(int cell){
+		if(solver.isKnownMine(cell))
+			return 1;
+		return undecided(cell) ? INTERIOR : 0;
+	}
+
+	private int[] neighbours(int cell){
+		int x = board.xOf(cell), y = board.yOf(cell), count = 0;
+		int[] block = new int[8];
+		for(int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, board.width() - 1); pX++){
+			for(int pY = Math.max(y - 1, 0); pY <= Math.min(y + 1, board.height() - 1); pY++){
+				if(pX != x || pY != y)
+					block[count++] = board.index(pX, pY);
+			}
+		}
+		return Arrays.copyOf(block, count);
+	}
+
+	/**
+	 * @return Weight of r mines over the interior for each r up to minesLeft,
+	 * proportional to (interior choose r) and scaled so the biggest is 1
+	 */
+	private static double[] binomialWeights(int interior, int minesLeft){
+		double[] log = new double[Math.max(minesLeft, 0) + 1];
+		double max = Double.NEGATIVE_INFINITY;
+		for(int r = 0; r < log.length; r++){
+			if(r > interior)
+				log[r] = Double.NEGATIVE_INFINITY;
+			else
+				log[r] = r == 0 ? 0 : log[r - 1] + Math.log((double)(interior - r + 1) / r);
+			max = Math.max(max, log[r]);
+		}
+		double[] weights = new double[log.length];
+		for(int r = 0; r < log.length; r++)
+			weights[r] = Math.exp(log[r] - max);
+		return weights;
+	}
+
+	/** Adds the product of a and b into out, shifted up by offset */
+	private static void addProduct(double[] out, double[] a, double[] b, int offset){
+		for(int i = 0; i < a.length; i++){
+			if(a[i] == 0)
+				continue;
+			for(int j = 0; j < b.length; j++){
+				int t = i + j + offset;
+				if(t >= 0 && t < out.length)
+					out[t] += a[i] * b[j];
+			}
+		}
+	}
+
+	private static double max(double[] values){
+		double max = 0;
+		for(double value : values)
+			max = Math.max(max, value);
+		return max;
+	}
+
+	/**
+	 * @return out[a] = sum of other[b] * outside[a + b - shift], for a up
+	 * to length, only counting outside from from to to
+	 */
+	private static double[] correlate(double[] other, double[] outside, int from, int to, int shift, int length){
+		double[] out = new double[length];
+		for(int t = from; t <= to; t++){
+			double weight = outside[t];
+			if(weight == 0)
+				continue;
+			int sum = t + shift;
+			for(int b = Math.max(sum - length + 1, 0); b < other.length && b <= sum; b++)
+				out[sum - b] += other[b] * weight;
+		}
+		return out;
+	}
+
+	/** @return The values scaled so the biggest is 1, only ratios matter */
+	private static double[] scaled(double[] values){
+		double top = max(values);
+		if(top > 0)
+			for(int i = 0; i < values.length; i++)
+				values[i] /= top;
+		return values;
+	}
+
+	private static double[] convolve(double[] a, double[] b){
+		double[] out = new double[a.length + b.length - 1];
+		for(int i = 0; i < a.length; i++){
+			if(a[i] == 0)
+				continue;
+			for(int j = 0; j < b.length; j++)
+				out[i + j] += a[i] * b[j];
+		}
+		return out;
+	}
+
+	private static boolean get(long[] plane, int cell){
+		return (plane[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	private static void set(long[] plane, int cell){
+		plane[cell >>> 6] |= 1L << cell;
+	}
+
+	private static void clear(long[] plane, int cell){
+		plane[cell >>> 6] &= ~(1L << cell);
+	}
+}
@@ -0,0 +1,290 @@
+package minesweeper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * A whole game as the board's seed plus every click, small enough to
+ * mail around with a bug report or keep next to a high score. Boards
+ * come back from the seed through MinePlacer, so only the moves need
+ * storing.
+ *
+ * File format, all numbers unsigned LEB128 varints unless noted:
+ * ["MSR" 1][width][height][mines][first click + 2, 0 if no mines yet,
+ * 1 for none][seed, 8 bytes big endian] then one event per move of
+ * [cell << 2 | action][millis since the last move]
+ * Times are game clock times, so pauses don't show up and a reset
+ * starts back from zero.
+ */
+public class Replay {
+
+	public static final int REVEAL = 0, FLAG = 1, RESET = 2, CHORD = 3;
+	private static final byte[] MAGIC = {'M', 'S', 'R', 1};
+
+	private final int width, height, numMines;
+	private long seed;
+	//Cell kept clear when the mines went down, -1 for none
+	private int safeCell = -1;
+	private boolean placed;
+	//Encoded moves, written up to the buffer's position
+	private ByteBuffer events = ByteBuffer.allocate(64);
+	private int moves, clicks;
+	private long lastMillis;
+
+	public Replay(int width, int height, int numMines){
+		this.width = width;
+		this.height = height;
+		this.numMines = numMines;
+	}
+
+	public int width(){ return width; }
+	public int height(){ return height; }
+	public int numMines(){ return numMines; }
+	public long seed(){ return seed; }
+	public int safeCell(){ return safeCell; }
+	public boolean isPlaced(){ return placed; }
+	public int moves(){ return moves; }
+	/** @return Moves since the last reset, so the ones that played this game */
+	public int clicks(){ return clicks; }
+
+	/**
+	 * Call once the mines are down, with what went to MinePlacer.place
+	 *
+	 * @param safeCell First click kept clear, -1 for none
+	 */
+	public void placed(long seed, int safeCell){
+		this.seed = seed;
+		this.safeCell = safeCell;
+		this.placed = true;
+	}
+
+	/**
+	 * Adds a move to the end of the replay
+	 *
+	 * @param action REVEAL, FLAG, RESET or CHORD
+	 * @param cell Cell the move was on, ignored for a reset
+	 * @param millis Game clock time of the move
+	 */
+	public void record(int action, int cell, long millis){
+		if(action == RESET)
+			cell = 0;
+		if(events.remaining() < 20)
+			events = ByteBuffer.allocate(events.capacity() * 2).put(events.flip());
+		putVarint(events, ((long)cell << 2) | action);
+		putVarint(events, Math.max(millis - lastMillis, 0));
+		lastMillis = action == RESET ? 0 : millis;
+		clicks = action == RESET ? 0 : clicks + 1;
+		moves++;
+	}
+
+	/**
+	 * Drops every move after the first few, for taking moves back
+	 *
+	 * @param keep Moves to keep
+	 */
+	public void truncate(int keep){
+		Cursor kept = cursor();
+		int position = 0;
+		moves = clicks = 0;
+		lastMillis = 0;
+		while(moves < keep && kept.next()){
+			position = kept.in.position();
+			lastMillis = kept.action() == RESET ? 0 : lastMillis + kept.delay();
+			clicks = kept.action() == RESET ? 0 : clicks + 1;
+			moves++;
+		}
+		events.position(position);
+	}
+
+	/** @return A fresh board with the mines where they were, if they'd been placed */
+	public Board newBoard(){
+		Board board = new Board(width, height);
+		if(placed)
+			MinePlacer.place(board, numMines, seed, safeCell);
+		return board;
+	}
+
+	/** Steps through the moves without decoding them all up front */
+	public Cursor cursor(){
+		return new Cursor();
+	}
+
+	public class Cursor {
+		private final ByteBuffer in = ByteBuffer.wrap(events.array(), 0, events.position());
+		private int action, cell;
+		private long delay;
+
+		/** @return False once there are no moves left */
+		public boolean next(){
+			if(!in.hasRemaining())
+				return false;
+			long packed = getVarint(in);
+			action = (int)(packed & 3);
+			cell = (int)(packed >>> 2);
+			delay = getVarint(in);
+			return true;
+		}
+
+		public int action(){ return action; }
+		public int cell(){ return cell; }
+		/** @return Millis between the last move and this one */
+		public long delay(){ return delay; }
+	}
+
+	/** How a replay turned out, from fastForward */
+	public static class Result {
+		public final Board board;
+		public final boolean won, lost;
+		//Game clock time of the last move that counted, the score if it was won
+		public final long millis;
+
+		Result(Board board, boolean won, boolean lost, long millis){
+			this.board = board;
+			this.won = won;
+			this.lost = lost;
+			this.millis = millis;
+		}
+	}
+
+	/**
+	 * Plays every move straight onto a headless board. Once a game's won
+	 * or lost nothing but a reset counts, same as clicking in the game.
+	 */
+	public Result fastForward(){
+		Board board = newBoard();
+		Cursor moves = cursor();
+		boolean won = false, lost = false;
+		long clock = 0, millis = 0;
+		while(moves.next()){
+			clock += moves.delay();
+			int cell = moves.cell();
+			if(moves.action() == RESET){
+				board.reset();
+				won = lost = false;
+				clock = millis = 0;
+				continue;
+			}
+			if(won || lost)
+				continue;
+			millis = clock;
+			if(moves.action() == FLAG){
+				board.toggleFlag(cell);
+			}else if(moves.action() == CHORD){
+				if(board.chordMine(cell) >= 0){
+					lost = true;
+				}else{
+					board.chord(cell);
+					won = board.isCleared();
+				}
+			}else if(board.isMine(cell) && !board.isFlagged(cell)){
+				lost = true;
+			}else{
+				board.reveal(cell);
+				won = board.isCleared();
+			}
+		}
+		return new Result(board, won, lost, millis);
+	}
+
+	/** @return The replay in the format from the class comment */
+	public byte[] toBytes(){
+		ByteBuffer out = ByteBuffer.allocate(MAGIC.length + 4 * 5 + 8 + events.position());
+		out.put(MAGIC);
+		putVarint(out, width);
+		putVarint(out, height);
+		putVarint(out, numMines);
+		putVarint(out, placed ? safeCell + 2 : 0);
+		out.putLong(seed);
+		out.put(events.array(), 0, events.position());
+		return Arrays.copyOf(out.array(), out.position());
+	}
+
+	/**
+	 * Reads back what toBytes wrote, checking every move lands on the board
+	 *
+	 * @throws IOException If it isn't a replay or it's been cut short
+	 */
+	public static Replay fromBytes(byte[] bytes) throws IOException{
+		try{
+			ByteBuffer in = ByteBuffer.wrap(bytes);
+			for(int i = 0; i < MAGIC.length; i++)
+				if(in.get() != MAGIC[i])
+					throw new IOException("Not a replay");
+			int width = (int)getVarint(in), height = (int)getVarint(in);
+			int numMines = (int)getVarint(in), safe = (int)getVarint(in);
+			long seed = in.getLong();
+			long cells = (long)width * height;
+			if(width <= 0 || height <= 0 || cells > Integer.MAX_VALUE || numMines < 0
+					|| numMines > cells || safe - 2 >= cells)
+				throw new IOException("Bad replay header");
+			Replay replay = new Replay(width, height, numMines);
+			if(safe > 0)
+				replay.placed(seed, safe - 2);
+			replay.events = ByteBuffer.allocate(in.remaining()).put(in);
+			//Walk it to check it over, and to pick up the clock in case
+			//more gets recorded on the end
+			Cursor check = replay.cursor();
+			while(check.next()){
+				if(check.action() > CHORD || check.cell() < 0 || check.cell() >= cells)
+					throw new IOException("Bad move in replay");
+				replay.lastMillis = check.action() == RESET ? 0 : replay.lastMillis + check.delay();
+				replay.clicks = check.action() == RESET ? 0 : replay.clicks + 1;
+				replay.moves++;
+			}
+			return replay;
+		}catch(BufferUnderflowException e){
+			throw new IOException("Replay is cut short");
+		}
+	}
+
+	public void save(File file) throws IOException{
+		Files.write(file.toPath(), toBytes());
+	}
+
+	public static Replay load(File file) throws IOException{
+		return fromBytes(Files.readAllBytes(file.toPath()));
+	}
+
+	/** Unsigned LEB128, seven bits a byte with the top bit saying there's more */
+	private static void putVarint(ByteBuffer out, long value){
+		while((value & ~0x7fL) != 0){
+			out.put((byte)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte)value);
+	}
+
+	private static long getVarint(ByteBuffer in){
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7){
+			byte b = in.get();
+			value |= (long)(b & 0x7f) << shift;
+			if(b >= 0)
+				return value;
+		}
+		throw new BufferUnderflowException();
+	}
+
+	/**
+	 * Checks replay files from the command line, say for a suspicious
+	 * high score. Prints how each one turned out and how long it took.
+	 */
+	public static void main(String[] args) throws IOException{
+		if(args.length == 0){
+			System.out.println("Usage: Replay file...");
+			return;
+		}
+		for(String name : args){
+			Replay replay = load(new File(name));
+			Result result = replay.fastForward();
+			System.out.printf("%s: %dx%d, %d mines, %d moves, %s at %d.%03ds%n", name,
+					replay.width, replay.height, replay.numMines, replay.moves,
+					result.won ? "won" : result.lost ? "lost" : "unfinished",
+					result.millis / 1000, result.millis % 1000);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package minesweeper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A game in progress on disk. On big boards the bit planes go straight
+ * into the file through a memory map, so even a board with hundreds of
+ * millions of cells saves and loads in one bulk copy per plane without
+ * the file ever passing through a byte array. Only the numbers get worked
+ * out again on load, from the mines.
+ *
+ * File format, little endian:
+ * [magic "MSAV"][version int][width int][height int][mines int]
+ * [bits int, 1 = mines placed, 2 = assisted, 4 = watched][elapsed millis long]
+ * [seed long][replay length int][spare int]
+ * then the mine, revealed and flagged planes, planeWords() longs each,
+ * then the game's Replay.
+ */
+public class SavedGame {
+
+	private static final int MAGIC = 'M' | 'S' << 8 | 'A' << 16 | 'V' << 24;
+	private static final int VERSION = 1, HEADER = 48;
+	private static final int PLACED = 1, ASSISTED = 2, WATCHED = 4;
+	//Smaller boards just get read and written. Mapping them isn't any faster,
+	//and on Windows a mapped file can't be deleted or truncated until the
+	//map gets garbage collected, which gets in the way of saving over it
+	private static final long MAP_THRESHOLD = 1 << 20;
+
+	public final Board board;
+	//Moves so far, so recording carries on where it left off
+	public final Replay replay;
+	public final int numMines;
+	public final long elapsedMillis;
+	//No guessing games don't get mines until the first click
+	public final boolean minesPlaced;
+	//Hints, odds or autoplay, keeps it off the high scores
+	public final boolean assisted;
+	//Board came from a replay, so it's off the high scores even after a reset
+	public final boolean watched;
+
+	public SavedGame(Board board, Replay replay, int numMines, long elapsedMillis,
+			boolean minesPlaced, boolean assisted, boolean watched){
+		this.board = board;
+		this.replay = replay;
+		this.numMines = numMines;
+		this.elapsedMillis = elapsedMillis;
+		this.minesPlaced = minesPlaced;
+		this.assisted = assisted;
+		this.watched = watched;
+	}
+
+	/**
+	 * Writes the game out, replacing whatever was in the file
+	 */
+	public void save(File file) throws IOException{
+		byte[] moves = replay.toBytes();
+		long planes = (long)board.planeWords() * 8 * 3;
+		FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try{
+			ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(board.width()).putInt(board.height())
+					.putInt(numMines).putInt((minesPlaced ? PLACED : 0) | (assisted ? ASSISTED : 0) | (watched ? WATCHED : 0))
+					.putLong(elapsedMillis).putLong(board.seed()).putInt(moves.length).putInt(0).flip();
+			writeFully(out, header, 0);
+			if(planes >= MAP_THRESHOLD){
+				MappedByteBuffer map = out.map(FileChannel.MapMode.READ_WRITE, HEADER, planes);
+				board.writePlanes(map.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer());
+				map.force();
+			}else{
+				ByteBuffer bytes = ByteBuffer.allocate((int)planes).order(ByteOrder.LITTLE_ENDIAN);
+				board.writePlanes(bytes.asLongBuffer());
+				writeFully(out, bytes, HEADER);
+			}
+			writeFully(out, ByteBuffer.wrap(moves), HEADER + planes);
+		}finally{
+			out.close();
+		}
+	}
+
+	/**
+	 * @throws IOException If it isn't a saved game or doesn't add up
+	 */
+	public static SavedGame load(File file) throws IOException{
+		FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try{
+			ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			while(header.hasRemaining() && in.read(header) >= 0);
+			header.flip();
+			if(header.remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION)
+				throw new IOException("Not a saved game");
+			int width = header.getInt(), height = header.getInt(), numMines = header.getInt();
+			int bits = header.getInt();
+			long elapsed = header.getLong(), seed = header.getLong();
+			int replayLength = header.getInt();
+			if(width <= 0 || height <= 0 || (long)width * height > Integer.MAX_VALUE || replayLength < 0)
+				throw new IOException("Bad saved game header");
+			Board board = new Board(width, height);
+			long planes = (long)board.planeWords() * 8 * 3;
+			if(in.size() != HEADER + planes + replayLength)
+				throw new IOException("Saved game is the wrong size");
+			ByteBuffer bytes;
+			if(planes >= MAP_THRESHOLD){
+				bytes = in.map(FileChannel.MapMode.READ_ONLY, HEADER, planes);
+			}else{
+				bytes = ByteBuffer.allocate((int)planes);
+				in.position(HEADER);
+				while(bytes.hasRemaining() && in.read(bytes) >= 0);
+				bytes.flip();
+			}
+			try{
+				board.readPlanes(bytes.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer());
+			}catch(IllegalArgumentException e){
+				throw new IOException(e.getMessage());
+			}
+			board.setSeed(seed);
+			ByteBuffer moves = ByteBuffer.allocate(replayLength);
+			in.position(HEADER + planes);
+			while(moves.hasRemaining() && in.read(moves) >= 0);
+			Replay replay = Replay.fromBytes(moves.array());
+			return new SavedGame(board, replay, numMines, elapsed,
+					(bits & PLACED) != 0, (bits & ASSISTED) != 0, (bits & WATCHED) != 0);
+		}finally{
+			in.close();
+		}
+	}
+
+	private static void writeFully(FileChannel out, ByteBuffer bytes, long at) throws IOException{
+		while(bytes.hasRemaining())
+			at += out.write(bytes, at);
+	}
+}
@@ -0,0 +1,465 @@
+package minesweeper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+import minesweeper.Leaderboard.Config;
+import minesweeper.Leaderboard.Score;
+
+/**
+ * High scores that survive crashes, one Leaderboard per board setup.
+ * The boards live in a snapshot file, and every new score gets appended
+ * to a journal next to it the moment it's earned, so saving costs one
+ * small write rather than rewriting everything. Once the journal builds
+ * up, a background thread folds it into a fresh snapshot, written to a
+ * temp file first and renamed over the old one so there's never a half
+ * written table on disk.
+ *
+ * Snapshot format, a first line of [#seq 3bv\n], the last journal record
+ * it includes, then one line per score:
+ * [width,height,mines,millis,3bv,clicks,name\n]
+ * Snapshots with no 3bv on the first line are from before 3BV was kept,
+ * and have [width,height,mines,millis,name\n] lines. The old 20 line
+ * [name,score\n] files in whole seconds still load, lines 1-5 go to
+ * easy, 6-10 intermediate and 11-15 hard. Custom scores from those
+ * don't say what board they were on, so they're dropped.
+ *
+ * Journal records are [length][crc32][version, seq, width, height, mines,
+ * millis, 3bv, clicks, name], version 2 ones have no 3bv or clicks. On
+ * startup the snapshot gets loaded, then any journal records newer than
+ * it are replayed. A torn record at the end, from dying mid write, fails
+ * its checksum and gets cut off.
+ */
+public class ScoreStore {
+
+	//Journal records before it's worth folding them into the snapshot
+	private static final int COMPACT_AFTER = 16;
+	//Record header, length then checksum
+	private static final int HEADER = 8;
+	//Nothing legit comes close, anything bigger is garbage
+	private static final int MAX_RECORD = 4096;
+	private static final byte VERSION = 3;
+	//Records from before 3BV and clicks were kept, still read
+	private static final byte NO_STATS = 2;
+	//Placeholder time the old score files were filled out with
+	private static final int LEGACY_EMPTY = 9985;
+	private static final Metrics.Histogram LOAD_TIME = Metrics.histogram("scores.load"),
+			APPEND_TIME = Metrics.histogram("scores.append"),
+			COMPACT_TIME = Metrics.histogram("scores.compact");
+
+	private final File snapshot, journalFile, tempFile;
+	private final Map<Config, Leaderboard> boards = new HashMap<Config, Leaderboard>();
+	private FileChannel journal;
+	//Last record written, and the last one that made it into the snapshot
+	private long seq, snapshotSeq;
+	private int pending;
+	private boolean compacting;
+	private final Object compactLock = new Object();
+
+	private static final ExecutorService compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "score-compactor");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		}
+	});
+
+	/**
+	 * Loads the boards and replays the journal. A missing snapshot starts
+	 * everything off empty. Lines in a mangled one get skipped, and the
+	 * file gets copied aside to .bad before anything can overwrite it.
+	 *
+	 * @param snapshot Score file, the journal goes next to it
+	 */
+	public ScoreStore(File snapshot) throws IOException{
+		GameEvents.ScoreIO event = new GameEvents.ScoreIO();
+		event.begin();
+		long start = System.nanoTime();
+		this.snapshot = snapshot;
+		this.journalFile = new File(snapshot.getPath() + ".journal");
+		this.tempFile = new File(snapshot.getPath() + ".tmp");
+		//Left over from dying mid compaction, the rename never happened
+		tempFile.delete();
+		//Nothing to load the first time round, the first score writes it
+		if(snapshot.exists()){
+			try{
+				snapshotSeq = loadSnapshot(snapshot);
+			}catch(IOException e){
+				//Leave it be, compacting now would bury whatever's in there
+				System.err.println("Couldn't read '"+snapshot+"', starting with no high scores: "+e);
+				keepBadCopy();
+				boards.clear();
+				snapshotSeq = 0;
+			}
+		}
+		seq = snapshotSeq;
+		journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		replay();
+		LOAD_TIME.since(start);
+		event.operation = "load";
+		event.commit();
+		if(pending > 0)
+			scheduleCompaction();
+	}
+
+	/**
+	 * @param count How many to fetch
+	 * @return Up to count of the best scores for the board, fastest first
+	 */
+	public synchronized List<Score> top(int width, int height, int numMines, int count){
+		Leaderboard board = boards.get(new Config(width, height, numMines));
+		return board == null ? new ArrayList<Score>() : board.top(count);
+	}
+
+	/** @return True if the time would make that board's leaderboard */
+	public synchronized boolean isHighScore(int width, int height, int numMines, long millis){
+		Leaderboard board = boards.get(new Config(width, height, numMines));
+		return board == null || board.qualifies(millis);
+	}
+
+	/**
+	 * Puts a score on its board and appends it to the journal straight
+	 * away. If the write fails the score still shows for this session.
+	 *
+	 * @param name Player name, newlines get swapped for spaces
+	 * @param millis Time the game took
+	 * @param threeBV The board's 3BV, see BoardAnalyzer
+	 * @param clicks Moves it took to clear
+	 * @return False if it didn't make the board
+	 */
+	public synchronized boolean add(int width, int height, int numMines, String name, long millis,
+			int threeBV, int clicks){
+		name = name.replace('\n', ' ').replace('\r', ' ');
+		Score score = new Score(name, millis, threeBV, clicks, seq + 1);
+		if(!insert(new Config(width, height, numMines), score))
+			return false;
+		seq++;
+		try{
+			append(width, height, numMines, score);
+		}catch(IOException e){
+			System.err.println("Problem saving high score. Blame Jake.");
+			return true;
+		}
+		if(++pending >= COMPACT_AFTER)
+			scheduleCompaction();
+		return true;
+	}
+
+	/**
+	 * Folds the journal into the snapshot right now, on the calling thread
+	 */
+	public void compact() throws IOException{
+		GameEvents.ScoreIO event = new GameEvents.ScoreIO();
+		event.begin();
+		long start = System.nanoTime();
+		try{
+			compactNow();
+		}finally{
+			COMPACT_TIME.since(start);
+			event.operation = "compact";
+			event.commit();
+		}
+	}
+
+	/** compact() without the timing */
+	private void compactNow() throws IOException{
+		//One at a time, they share the temp file
+		synchronized(compactLock){
+			List<Config> configs = new ArrayList<Config>();
+			List<List<Score>> scores = new ArrayList<List<Score>>();
+			long upTo, mark;
+			synchronized(this){
+				for(Map.Entry<Config, Leaderboard> e : boards.entrySet()){
+					configs.add(e.getKey());
+					scores.add(e.getValue().top(Leaderboard.CAPACITY));
+				}
+				upTo = seq;
+				mark = journal.size();
+			}
+			FileOutputStream out = new FileOutputStream(tempFile);
+			try{
+				Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+				saveSnapshot(w, configs, scores, upTo);
+				w.flush();
+				out.getFD().sync();
+			}finally{
+				out.close();
+			}
+			move(tempFile, snapshot);
+			synchronized(this){
+				snapshotSeq = upTo;
+				if(!journal.isOpen())
+					return;
+				pending = (int)(seq - upTo);
+				if(seq == upTo){
+					journal.truncate(0);
+					journal.force(true);
+					return;
+				}
+				//Scores added while the snapshot was being written carry over
+				//to a fresh journal, swapped in with a rename like the snapshot.
+				//Dying halfway just leaves the old one, replay skips what's covered
+				ByteBuffer tail = ByteBuffer.allocate((int)(journal.size() - mark));
+				journal.position(mark);
+				while(tail.hasRemaining() && journal.read(tail) >= 0);
+				tail.flip();
+				FileChannel fresh = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+				try{
+					while(tail.hasRemaining())
+						fresh.write(tail);
+					fresh.force(true);
+				}finally{
+					fresh.close();
+				}
+				journal.close();
+				move(tempFile, journalFile);
+				journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+			}
+		}
+	}
+
+	/** Renames over the target in one step where the file system allows */
+	private static void move(File from, File to) throws IOException{
+		try{
+			Files.move(from.toPath(), to.toPath(),
+					StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}catch(AtomicMoveNotSupportedException e){
+			Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/** Stops journaling. Everything's already on disk, so nothing to flush */
+	public synchronized void close(){
+		try{
+			journal.close();
+		}catch(IOException e){
+			System.err.println("Problem closing high scores... Blame Jake.");
+		}
+	}
+
+	private synchronized void scheduleCompaction(){
+		if(compacting)
+			return;
+		compacting = true;
+		compactor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try{
+					compact();
+				}catch(IOException e){
+					System.err.println("Problem compacting high scores. Blame Jake.");
+				}finally{
+					synchronized(ScoreStore.this){
+						compacting = false;
+					}
+				}
+			}
+		});
+	}
+
+	private boolean insert(Config config, Score score){
+		Leaderboard board = boards.get(config);
+		if(board == null)
+			boards.put(config, board = new Leaderboard());
+		return board.add(score);
+	}
+
+	private void append(int width, int height, int numMines, Score score) throws IOException{
+		GameEvents.ScoreIO event = new GameEvents.ScoreIO();
+		event.begin();
+		long start = System.nanoTime();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream payload = new DataOutputStream(bytes);
+		payload.writeByte(VERSION);
+		payload.writeLong(seq);
+		payload.writeInt(width);
+		payload.writeInt(height);
+		payload.writeInt(numMines);
+		payload.writeLong(score.millis);
+		payload.writeInt(score.threeBV);
+		payload.writeInt(score.clicks);
+		payload.writeUTF(score.name);
+		byte[] body = bytes.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		ByteBuffer record = ByteBuffer.allocate(HEADER + body.length);
+		record.putInt(body.length).putInt((int)crc.getValue()).put(body).flip();
+		journal.position(journal.size());
+		while(record.hasRemaining())
+			journal.write(record);
+		journal.force(false);
+		APPEND_TIME.since(start);
+		event.operation = "append";
+		event.commit();
+	}
+
+	/**
+	 * Applies every good journal record newer than the snapshot, and cuts
+	 * the journal off at the first bad one.
+	 */
+	private void replay() throws IOException{
+		long size = journal.size(), good = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		journal.position(0);
+		while(good + HEADER <= size){
+			header.clear();
+			while(header.hasRemaining() && journal.read(header) >= 0);
+			header.flip();
+			int length = header.getInt(), check = header.getInt();
+			if(length <= 0 || length > MAX_RECORD || good + HEADER + length > size)
+				break;
+			ByteBuffer body = ByteBuffer.allocate(length);
+			while(body.hasRemaining() && journal.read(body) >= 0);
+			CRC32 crc = new CRC32();
+			crc.update(body.array());
+			if((int)crc.getValue() != check)
+				break;
+			good += HEADER + length;
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(body.array()));
+			//Records from before per board leaderboards can't be placed
+			byte version = in.readByte();
+			if(version != VERSION && version != NO_STATS)
+				continue;
+			long recordSeq = in.readLong();
+			Config config = new Config(in.readInt(), in.readInt(), in.readInt());
+			long millis = in.readLong();
+			int threeBV = version == VERSION ? in.readInt() : 0;
+			int clicks = version == VERSION ? in.readInt() : 0;
+			String name = in.readUTF();
+			if(recordSeq > snapshotSeq){
+				insert(config, new Score(name, millis, threeBV, clicks, recordSeq));
+				pending++;
+			}
+			seq = Math.max(seq, recordSeq);
+		}
+		if(good < size){
+			System.err.println("Dropped a damaged high score record from '"+journalFile+"'");
+			journal.truncate(good);
+			journal.force(true);
+		}
+	}
+
+	/**
+	 * Reads a snapshot in the format in the class comment, old style or new.
+	 *
+	 * @return Last journal record the snapshot covers
+	 */
+	private long loadSnapshot(File scoreFile) throws IOException{
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(scoreFile), StandardCharsets.UTF_8));
+		try{
+			long upTo = 0;
+			//Snapshot scores all come before anything in the journal, and
+			//keep their file order for ties
+			long order = Long.MIN_VALUE;
+			int legacy = 0, fields = 5, bad = 0;
+			boolean headed = false;
+			for(String line = in.readLine(); line != null; line = in.readLine()){
+				try{
+					if(line.startsWith("#")){
+						String[] head = line.substring(1).trim().split(" ");
+						upTo = Long.parseLong(head[0]);
+						headed = true;
+						if(head.length > 1 && head[1].equals("3bv"))
+							fields = 7;
+						continue;
+					}
+					String[] raw = line.split(",", fields);
+					if(raw.length == fields){
+						Config config = new Config(Integer.parseInt(raw[0]), Integer.parseInt(raw[1]),
+								Integer.parseInt(raw[2]));
+						long millis = Long.parseLong(raw[3]);
+						if(fields == 7)
+							insert(config, new Score(raw[6], millis, Integer.parseInt(raw[4]),
+									Integer.parseInt(raw[5]), order++));
+						else
+							insert(config, new Score(raw[4], millis, order++));
+						continue;
+					}
+					//Only the old fixed table has no seq line, anything else is junk
+					if(headed){
+						bad++;
+						continue;
+					}
+					//Old fixed table, five slots a difficulty in whole seconds
+					int seconds = Integer.parseInt(raw[1].trim());
+					Difficulty d = Difficulty.values()[Math.min(legacy++ / 5, Difficulty.CUST.ordinal())];
+					if(d != Difficulty.CUST && seconds < LEGACY_EMPTY)
+						insert(new Config(d.width, d.height, d.numMines), new Score(raw[0], seconds * 1000L, order++));
+				}catch(RuntimeException e){
+					//Bad number or too few fields, the rest of the file is still good
+					bad++;
+				}
+			}
+			if(bad > 0){
+				System.err.println("Skipped "+bad+" damaged line(s) in '"+scoreFile+"'");
+				keepBadCopy();
+			}
+			//Old files never get a seq line, and need rewriting in the new format
+			if(legacy > 0)
+				pending++;
+			return upTo;
+		}finally{
+			in.close();
+		}
+	}
+
+	/**
+	 * Copies a snapshot that didn't read cleanly to .bad, so the next
+	 * compaction can't take the only copy of the lost scores with it.
+	 */
+	private void keepBadCopy(){
+		File bad = new File(snapshot.getPath() + ".bad");
+		try{
+			Files.copy(snapshot.toPath(), bad.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			System.err.println("Kept the original as '"+bad+"'");
+		}catch(IOException e){
+			System.err.println("Couldn't copy '"+snapshot+"' to '"+bad+"': "+e);
+		}
+	}
+
+	/**
+	 * Writes a snapshot out in the format in the class comment
+	 *
+	 * @param out Writer for the snapshot, left open
+	 */
+	static void saveSnapshot(Writer out, List<Config> configs, List<List<Score>> scores,
+			long upTo) throws IOException{
+		out.write("#"+upTo+" 3bv\n");
+		for(int i = 0; i < configs.size(); i++){
+			Config c = configs.get(i);
+			String prefix = c.width+","+c.height+","+c.numMines+",";
+			for(Score s : scores.get(i))
+				out.write(prefix+s.millis+","+s.threeBV+","+s.clicks+","+s.name+"\n");
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package minesweeper;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Headless batch runner. Plays a lot of games with no UI at all and reports
+ * how a strategy does, for measuring generator and solver changes at scale.
+ * Games are split into tasks on a work-stealing ForkJoinPool, one thread per
+ * core, and every game's board and moves come from its own seed, so a run
+ * can be repeated exactly.
+ *
+ * Usage: java Simulator [EASY|INT|HARD|WxHxM] [games] [random|solver|odds] [noguess] [seed]
+ */
+public class Simulator {
+
+	//Games per task before it stops splitting
+	private static final int CHUNK = 512;
+	private static final String USAGE =
+			"Usage: Simulator [EASY|INT|HARD|WxHxM] [games] [random|solver|odds] [noguess] [seed]";
+
+	/** One game in progress, what a strategy gets to play with */
+	public static class Game {
+		private final Board board;
+		private boolean lost;
+		private int clicks;
+
+		Game(Board board){
+			this.board = board;
+		}
+
+		/** The board, for reading. Make moves through click() */
+		public Board board(){
+			return board;
+		}
+
+		/**
+		 * @param cell Hidden cell to click
+		 * @return Cells that opened up, or null if it was a mine
+		 */
+		public int[] click(int cell){
+			clicks++;
+			if(board.isMine(cell)){
+				lost = true;
+				return null;
+			}
+			return board.reveal(cell);
+		}
+
+		public boolean isOver(){
+			return lost || board.isCleared();
+		}
+	}
+
+	/** A way of playing, has to keep clicking until the game's over */
+	public interface Strategy {
+		void play(Game game, SplittableRandom random);
+	}
+
+	/** Clicks hidden cells at random */
+	public static final Strategy RANDOM = new Strategy() {
+		@Override
+		public void play(Game game, SplittableRandom random) {
+			Board board = game.board();
+			while(!game.isOver()){
+				int cell = random.nextInt(board.size());
+				if(!board.isRevealed(cell))
+					game.click(cell);
+			}
+		}
+	};
+
+	/** Plays everything the solver can work out, and guesses at random when it's stuck */
+	public static final Strategy SOLVER = new Strategy() {
+		@Override
+		public void play(Game game, SplittableRandom random) {
+			solve(game, random, false);
+		}
+	};
+
+	/** Same as SOLVER, but guesses whichever cell has the lowest odds of a mine */
+	public static final Strategy ODDS = new Strategy() {
+		@Override
+		public void play(Game game, SplittableRandom random) {
+			solve(game, random, true);
+		}
+	};
+
+	private static void solve(final Game game, SplittableRandom random, boolean useOdds){
+		final Board board = game.board();
+		final Solver solver = new Solver(board);
+		ProbabilityEngine probabilities = useOdds ? new ProbabilityEngine(board, solver) : null;
+		Solver.Moves moves = new Solver.Moves() {
+			@Override
+			public void makeMove(int cell) {
+				int[] opened = game.click(cell);
+				if(opened != null)
+					solver.revealed(opened);
+			}
+			@Override
+			public void flag(int cell) {
+				board.toggleFlag(cell);
+			}
+		};
+		while(!game.isOver()){
+			solver.autoplay(moves);
+			if(game.isOver())
+				break;
+			int guess = -1;
+			if(probabilities != null){
+				ProbabilityEngine.Odds odds = probabilities.compute();
+				for(int cell = 0; cell < board.size(); cell++){
+					if(!board.isRevealed(cell) && !solver.isKnownMine(cell)
+							&& (guess < 0 || odds.get(cell) < odds.get(guess)))
+						guess = cell;
+				}
+			}
+			while(guess < 0){
+				int cell = random.nextInt(board.size());
+				if(!board.isRevealed(cell) && !solver.isKnownMine(cell))
+					guess = cell;
+			}
+			if(board.isFlagged(guess))
+				board.toggleFlag(guess);
+			moves.makeMove(guess);
+		}
+	}
+
+	/** Totals for a batch of games */
+	public static class Results {
+		public long games, wins, clicks;
+		//3BV of every board, and the 3BV and clicks of just the won ones
+		public long threeBV, wonThreeBV, wonClicks;
+
+		void add(Results other){
+			games += other.games;
+			wins += other.wins;
+			clicks += other.clicks;
+			threeBV += other.threeBV;
+			wonThreeBV += other.wonThreeBV;
+			wonClicks += other.wonClicks;
+		}
+	}
+
+	/** Plays games [from, to), splitting in half until the range is small */
+	private static class Batch extends RecursiveTask<Results> {
+		private static final long serialVersionUID = 1L;
+		final int width, height, numMines;
+		final Strategy strategy;
+		final boolean noGuess;
+		final long seed, from, to;
+
+		Batch(int width, int height, int numMines, Strategy strategy, boolean noGuess,
+				long seed, long from, long to){
+			this.width = width;
+			this.height = height;
+			this.numMines = numMines;
+			this.strategy = strategy;
+			this.noGuess = noGuess;
+			this.seed = seed;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Results compute() {
+			if(to - from > CHUNK){
+				long mid = (from + to) >>> 1;
+				Batch left = new Batch(width, height, numMines, strategy, noGuess, seed, from, mid);
+				left.fork();
+				Results results = new Batch(width, height, numMines, strategy, noGuess, seed, mid, to).compute();
+				results.add(left.join());
+				return results;
+			}
+			Results results = new Results();
+			for(long i = from; i < to; i++){
+				SplittableRandom random = new SplittableRandom(seed + i);
+				Board board = new Board(width, height);
+				Game game = new Game(board);
+				if(noGuess){
+					//Opens in the middle, same as a person usually would
+					int start = board.index(width / 2, height / 2);
+					long layout = NoGuessGenerator.findSeed(width, height, numMines, start, random.nextLong());
+					MinePlacer.place(board, numMines, layout, start);
+					game.click(start);
+				}else{
+					MinePlacer.place(board, numMines, random.nextLong());
+				}
+				int threeBV = board.threeBV();
+				strategy.play(game, random);
+				results.games++;
+				results.clicks += game.clicks;
+				results.threeBV += threeBV;
+				if(!game.lost){
+					results.wins++;
+					results.wonThreeBV += threeBV;
+					results.wonClicks += game.clicks;
+				}
+			}
+			return results;
+		}
+	}
+
+	/**
+	 * Plays a batch of games across every core
+	 *
+	 * @param games How many to play
+	 * @param seed Seed for the whole run, game i uses seed + i
+	 */
+	public static Results run(int width, int height, int numMines, Strategy strategy,
+			boolean noGuess, long games, long seed){
+		return ForkJoinPool.commonPool().invoke(
+				new Batch(width, height, numMines, strategy, noGuess, seed, 0, games));
+	}
+
+	public static void main(String[] args) {
+		String setting = args.length > 0 ? args[0] : "EASY";
+		String strategyName = args.length > 2 ? args[2] : "solver";
+		boolean noGuess = args.length > 3 && args[3].equalsIgnoreCase("noguess");
+		long games = 1000000, seed = System.nanoTime();
+		try{
+			if(args.length > 1)
+				games = Long.parseLong(args[1]);
+			if(args.length > 4)
+				seed = Long.parseLong(args[4]);
+		}catch(NumberFormatException e){
+			usage("Games and seed have to be whole numbers");
+		}
+		if(games <= 0)
+			usage("Games has to be at least 1");
+
+		int width = 0, height = 0, numMines = 0;
+		if(setting.toLowerCase().contains("x")){
+			String[] dims = setting.toLowerCase().split("x");
+			try{
+				if(dims.length == 3){
+					width = Integer.parseInt(dims[0]);
+					height = Integer.parseInt(dims[1]);
+					numMines = Integer.parseInt(dims[2]);
+				}
+			}catch(NumberFormatException e){
+				width = 0;
+			}
+			//Needs room for a first click that isn't a mine
+			if(width <= 0 || height <= 0 || numMines < 0 || numMines >= (long)width * height)
+				usage("Bad board '"+setting+"', it's width x height x mines, with room for a safe cell");
+		}else{
+			//CUST has no size of its own and ENDLESS never ends, so neither can be played here
+			Difficulty d = null;
+			for(Difficulty standard : new Difficulty[]{Difficulty.EASY, Difficulty.INT, Difficulty.HARD})
+				if(standard.name().equalsIgnoreCase(setting))
+					d = standard;
+			if(d == null)
+				usage("Unknown board '"+setting+"'");
+			width = d.width;
+			height = d.height;
+			numMines = d.numMines;
+		}
+		Strategy strategy = null;
+		if(strategyName.equalsIgnoreCase("random"))
+			strategy = RANDOM;
+		else if(strategyName.equalsIgnoreCase("solver"))
+			strategy = SOLVER;
+		else if(strategyName.equalsIgnoreCase("odds"))
+			strategy = ODDS;
+		else
+			usage("Unknown strategy '"+strategyName+"'");
+
+		System.out.printf("Playing %d games of %dx%d with %d mines, %s strategy%s, seed %d, %d threads%n",
+				games, width, height, numMines, strategyName, noGuess ? ", no guessing boards" : "",
+				seed, ForkJoinPool.commonPool().getParallelism());
+		long start = System.nanoTime();
+		Results results = run(width, height, numMines, strategy, noGuess, games, seed);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Win rate:      %.2f%%%n", 100.0 * results.wins / results.games);
+		System.out.printf("Avg reveals:   %.2f clicks per game%n", (double)results.clicks / results.games);
+		System.out.printf("Avg 3BV:       %.2f per board%n", (double)results.threeBV / results.games);
+		System.out.printf("Efficiency:    %.2f%% on won games%n",
+				results.wonClicks == 0 ? 0 : 100.0 * results.wonThreeBV / results.wonClicks);
+		System.out.printf("Throughput:    %.0f games/s (%.1fs total)%n", results.games / seconds, seconds);
+	}
+
+	/** Says what was wrong with the arguments and quits */
+	private static void usage(String problem){
+		System.err.println(problem);
+		System.err.println(USAGE);
+		System.exit(1);
+	}
+}
@@ -0,0 +1,423 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * Deterministic constraint solver. Only looks at what a player could see,
+ * the revealed numbers and the total mine count, and works out which hidden
+ * cells are certainly safe and which are certainly mines.
+ *
+ * Every revealed number is a constraint: its hidden neighbours hold exactly
+ * (number - known mines around it) mines. Constraints are checked on their
+ * own (all safe or all mines), and against every other constraint close
+ * enough to overlap. If one's hidden cells are a subset of another's, the
+ * difference holds exactly the difference in mines. Hidden cells are packed
+ * into a 7x7 bit window around the constraint being checked, so the subset
+ * tests are a couple of long operations.
+ *
+ * Work is incremental. Only constraints next to a cell that changed since
+ * the last pass get looked at again, so re-solving after a reveal costs
+ * about the size of the reveal, not the size of the board.
+ *
+ * Use nextSafeMove() for hints, and autoplay() to play out everything
+ * that can be worked out.
+ */
+public class Solver {
+
+	/** What autoplay drives, normally the panel's makeMove and flag */
+	public interface Moves {
+		/** Reveal a cell the solver knows is safe */
+		void makeMove(int cell);
+		/** Toggle the flag on a cell, to mark a known mine or take a wrong flag off */
+		void flag(int cell);
+	}
+
+	/** Hears about cells as they change, see watch() */
+	public interface Watcher {
+		/** The cell got revealed, hidden again or worked out */
+		void changed(int cell);
+	}
+
+	private final Board board;
+	//Cells worked out to be mines, and cells known to be safe, which
+	//includes everything that's been revealed
+	private final long[] mines, safe;
+	//Hidden cells that are neither, kept as cells get revealed and decided
+	//so the total mine count can be checked without a scan
+	private int undecided;
+	//Constraints waiting to be re-checked, as a stack with a bit per cell
+	//so nothing gets on it twice
+	private final long[] queued;
+	private int[] work = new int[64];
+	private int workSize;
+	//Safe cells found that were still hidden last time we looked
+	private int[] found = new int[64];
+	private int foundSize;
+	//Every mine worked out so far, in the order they were found
+	private int[] mineList = new int[16];
+	private int minesFound;
+	private Watcher watcher;
+
+	/**
+	 * @param board Board to solve. Everything already revealed on it is
+	 * taken into account, after that tell the solver about reveals through
+	 * revealed().
+	 */
+	public Solver(Board board){
+		this.board = board;
+		int words = (board.size() + 63) >>> 6;
+		mines = new long[words];
+		safe = new long[words];
+		queued = new long[words];
+		for(int cell = 0; cell < board.size(); cell++){
+			if(board.isRevealed(cell)){
+				set(safe, cell);
+				enqueue(cell);
+			}else{
+				undecided++;
+			}
+		}
+	}
+
+	/**
+	 * Plays a board from one cell using nothing but deduction.
+	 * The board gets revealed along the way, so hand it a scratch copy.
+	 *
+	 * @param board Freshly placed board, nothing revealed
+	 * @param start First click
+	 * @return True if the board can be cleared without ever guessing
+	 */
+	public static boolean solvesWithoutGuessing(Board board, int start){
+		if(board.isMine(start))
+			return false;
+		Solver solver = new Solver(board);
+		solver.revealed(board.reveal(start));
+		for(int next = solver.nextSafeMove(); next >= 0; next = solver.nextSafeMove()){
+			solver.revealed(board.reveal(next));
+		}
+		return board.isCleared();
+	}
+
+	/**
+	 * Tells the watcher about every cell that changes from here on, so
+	 * anything following the solver only has to look at those. Only one
+	 * at a time, normally the ProbabilityEngine.
+	 */
+	public void watch(Watcher watcher){
+		this.watcher = watcher;
+	}
+
+	/** @return Hidden cells that haven't been worked out either way */
+	public int undecidedCells(){
+		return undecided;
+	}
+
+	/** @return Number of mines worked out so far */
+	public int minesFound(){
+		return minesFound;
+	}
+
+	/** Runs deduction until nothing more can be worked out */
+	public void solve(){
+		while(deduce())
+			;
+	}
+
+	/** @return True if the cell has been worked out to be a mine */
+	public boolean isKnownMine(int cell){
+		return get(mines, cell);
+	}
+
+	/** @return True if the cell is hidden and has been worked out to be safe */
+	public boolean isKnownSafe(int cell){
+		return get(safe, cell) && !board.isRevealed(cell);
+	}
+
+	/**
+	 * Lets the solver know about cells that just got revealed, so the
+	 * constraints around them get checked again
+	 *
+	 * @param cells Newly revealed cells, as returned by Board.reveal
+	 */
+	public void revealed(int[] cells){
+		for(int cell : cells){
+			if(!get(safe, cell)){
+				set(safe, cell);
+				undecided--;
+			}
+			enqueue(cell);
+			enqueueAround(cell);
+			if(watcher != null)
+				watcher.changed(cell);
+		}
+	}
+
+	/**
+	 * Lets the solver know the board went back or forward to another
+	 * version, for undo and redo. Only the cells that differ get looked
+	 * at, same as after a reveal. Anything worked out stays worked out,
+	 * it's still true, so cells hidden again are known safe straight away.
+	 *
+	 * @param from Version the board was at
+	 * @param to Version it's at now
+	 */
+	public void restored(BoardHistory.Version from, BoardHistory.Version to){
+		from.revealed.diff(to.revealed, new PersistentBits.Changes() {
+			@Override
+			public void word(int index, long from, long to) {
+				for(long bits = from ^ to; bits != 0; bits &= bits - 1){
+					int cell = (index << 6) + Long.numberOfTrailingZeros(bits);
+					if((to & (1L << cell)) != 0){
+						revealed(new int[]{cell});
+					}else{
+						if(foundSize == found.length)
+							found = Arrays.copyOf(found, foundSize * 2);
+						found[foundSize++] = cell;
+						enqueueAround(cell);
+						if(watcher != null)
+							watcher.changed(cell);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Works out a safe move, only doing as much deduction as it takes. The
+	 * same cell keeps coming back until it's revealed, so it's fine to
+	 * ask for a hint and not take it.
+	 *
+	 * @return A hidden cell that's certainly safe, or -1 if there's nothing
+	 * left that can be worked out without guessing
+	 */
+	public int nextSafeMove(){
+		while(true){
+			while(foundSize > 0){
+				int cell = found[foundSize - 1];
+				if(!board.isRevealed(cell))
+					return cell;
+				foundSize--;
+			}
+			if(!deduce())
+				return -1;
+		}
+	}
+
+	/**
+	 * Plays every move that can be worked out, flagging known mines as it
+	 * goes, and stops when the board is done or the next move is a guess.
+	 * The caller still has to pass the cells each move opens to revealed().
+	 *
+	 * @param moves Where to send the moves
+	 * @return Number of cells clicked
+	 */
+	public int autoplay(Moves moves){
+		int played = 0, flagged = 0;
+		while(true){
+			flagged = flagMines(moves, flagged);
+			int next = nextSafeMove();
+			if(next < 0)
+				break;
+			//Board.reveal won't touch a flagged cell, so take a wrong flag off first
+			if(board.isFlagged(next))
+				moves.flag(next);
+			moves.makeMove(next);
+			if(!board.isRevealed(next))
+				break;
+			played++;
+		}
+		//The last pass may have turned up mines without any more safe moves
+		flagMines(moves, flagged);
+		return played;
+	}
+
+	/** Flags known mines from the given spot in the list on, returns where it got to */
+	private int flagMines(Moves moves, int from){
+		for(int i = from; i < minesFound; i++){
+			if(!board.isFlagged(mineList[i]))
+				moves.flag(mineList[i]);
+		}
+		return minesFound;
+	}
+
+	/**
+	 * Works through every queued constraint, and once they run out tries
+	 * the total mine count as a last resort.
+	 *
+	 * @return True if anything new was worked out
+	 */
+	private boolean deduce(){
+		boolean progress = false;
+		while(workSize > 0){
+			int cell = work[--workSize];
+			clear(queued, cell);
+			progress |= check(cell);
+		}
+		return progress || checkMineCount();
+	}
+
+	/**
+	 * Checks one constraint on its own, then against every other
+	 * revealed number close enough to share hidden cells with it
+	 *
+	 * @return True if anything new was worked out
+	 */
+	private boolean check(int cell){
+		//Could've been hidden again by an undo since it was queued
+		if(!board.isRevealed(cell) || board.adjacentMines(cell) == 0)
+			return false;
+		int cx = board.xOf(cell), cy = board.yOf(cell);
+		long own = hiddenAround(cx, cy, cx, cy);
+		if(own == 0)
+			return false;
+		int need = need(cx, cy);
+		if(need == 0)
+			return mark(cx, cy, own, false);
+		if(need == Long.bitCount(own))
+			return mark(cx, cy, own, true);
+		boolean progress = false;
+		for(int x = Math.max(cx - 2, 0); x <= Math.min(cx + 2, board.width() - 1); x++){
+			for(int y = Math.max(cy - 2, 0); y <= Math.min(cy + 2, board.height() - 1); y++){
+				int other = board.index(x, y);
+				if(other == cell || !board.isRevealed(other) || board.adjacentMines(other) == 0)
+					continue;
+				long theirs = hiddenAround(cx, cy, x, y);
+				if(theirs == 0 || (theirs & own) == 0)
+					continue;
+				int theirNeed = need(x, y);
+				if((own & ~theirs) == 0)
+					progress |= subset(cx, cy, theirs & ~own, theirNeed - need);
+				else if((theirs & ~own) == 0)
+					progress |= subset(cx, cy, own & ~theirs, need - theirNeed);
+				if(progress){
+					//There may be more to get out of this one next time round
+					enqueue(cell);
+					return true;
+				}
+			}
+		}
+		return progress;
+	}
+
+	/** The cells left over from a subset hold exactly extra mines */
+	private boolean subset(int cx, int cy, long leftover, int extra){
+		if(leftover == 0)
+			return false;
+		if(extra == 0)
+			return mark(cx, cy, leftover, false);
+		if(extra == Long.bitCount(leftover))
+			return mark(cx, cy, leftover, true);
+		return false;
+	}
+
+	/**
+	 * If every remaining mine is accounted for, or every undecided
+	 * cell has to be a mine, the whole board is decided. Checking is
+	 * just the counts, the board only gets walked the once it's true.
+	 */
+	private boolean checkMineCount(){
+		int left = board.numMines() - minesFound;
+		if(undecided == 0 || (left != 0 && left != undecided))
+			return false;
+		for(int cell = 0; cell < board.size(); cell++){
+			if(undecided(cell))
+				decide(cell, left != 0);
+		}
+		return true;
+	}
+
+	/*============ WINDOW MASKS ============*/
+
+	/**
+	 * @return Undecided neighbours of (x, y) as bits in the 7x7 window
+	 * centred on (cx, cy), bit (dx + 3) * 7 + (dy + 3)
+	 */
+	private long hiddenAround(int cx, int cy, int x, int y){
+		long mask = 0;
+		for(int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, board.width() - 1); pX++){
+			for(int pY = Math.max(y - 1, 0); pY <= Math.min(y + 1, board.height() - 1); pY++){
+				if(undecided(board.index(pX, pY)))
+					mask |= 1L << ((pX - cx + 3) * 7 + (pY - cy + 3));
+			}
+		}
+		return mask;
+	}
+
+	/** @return Mines around (x, y) that haven't been worked out yet */
+	private int need(int x, int y){
+		int need = board.adjacentMines(board.index(x, y));
+		for(int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, board.width() - 1); pX++){
+			for(int pY = Math.max(y - 1, 0); pY <= Math.min(y + 1, board.height() - 1); pY++){
+				if(get(mines, board.index(pX, pY)))
+					need--;
+			}
+		}
+		return need;
+	}
+
+	/** Decides every cell in a window mask centred on (cx, cy) */
+	private boolean mark(int cx, int cy, long mask, boolean mine){
+		for(long bits = mask; bits != 0; bits &= bits - 1){
+			int bit = Long.numberOfTrailingZeros(bits);
+			decide(board.index(cx + bit / 7 - 3, cy + bit % 7 - 3), mine);
+		}
+		return true;
+	}
+
+	/*============ BOOKKEEPING ============*/
+
+	private boolean undecided(int cell){
+		return !board.isRevealed(cell) && !get(mines, cell) && !get(safe, cell);
+	}
+
+	private void decide(int cell, boolean mine){
+		undecided--;
+		if(mine){
+			set(mines, cell);
+			if(minesFound == mineList.length)
+				mineList = Arrays.copyOf(mineList, minesFound * 2);
+			mineList[minesFound++] = cell;
+		}else{
+			set(safe, cell);
+			if(foundSize == found.length)
+				found = Arrays.copyOf(found, foundSize * 2);
+			found[foundSize++] = cell;
+		}
+		enqueueAround(cell);
+		if(watcher != null)
+			watcher.changed(cell);
+	}
+
+	/** Queues the revealed neighbours of a cell, which all just lost a hidden cell */
+	private void enqueueAround(int cell){
+		int x = board.xOf(cell), y = board.yOf(cell);
+		for(int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, board.width() - 1); pX++){
+			for(int pY = Math.max(y - 1, 0); pY <= Math.min(y + 1, board.height() - 1); pY++){
+				int n = board.index(pX, pY);
+				if(n != cell && board.isRevealed(n))
+					enqueue(n);
+			}
+		}
+	}
+
+	private void enqueue(int cell){
+		if(get(queued, cell) || board.adjacentMines(cell) == 0)
+			return;
+		set(queued, cell);
+		if(workSize == work.length)
+			work = Arrays.copyOf(work, workSize * 2);
+		work[workSize++] = cell;
+	}
+
+	private static boolean get(long[] plane, int cell){
+		return (plane[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	private static void set(long[] plane, int cell){
+		plane[cell >>> 6] |= 1L << cell;
+	}
+
+	private static void clear(long[] plane, int cell){
+		plane[cell >>> 6] &= ~(1L << cell);
+	}
+}
@@ -0,0 +1,77 @@
+package minesweeper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * BoardAnalyzer.threeBV against counting it the slow way, every opening
+ * flood filled one at a time plus every number not next to an opening.
+ */
+public class BoardAnalyzerTest {
+
+	@Test
+	public void threeBVMatchesFloodFill(){
+		Random random = new Random(1);
+		for(int i = 0; i < 20000; i++){
+			int width = 1 + random.nextInt(40), height = 1 + random.nextInt(40);
+			int mines = random.nextInt(width * height * 3 / 10 + 1);
+			Board board = new Board(width, height);
+			MinePlacer.place(board, mines, random.nextLong());
+			assertEquals(slowThreeBV(board), BoardAnalyzer.threeBV(board),
+					width+"x"+height+", "+mines+" mines");
+		}
+	}
+
+	@Test
+	public void threeBVOfStandardBoards(){
+		//No mines is one big opening, all mines is nothing to click
+		assertEquals(1, BoardAnalyzer.threeBV(new Board(9, 9)));
+		Board full = new Board(3, 3);
+		MinePlacer.place(full, 9, 1);
+		assertEquals(0, BoardAnalyzer.threeBV(full));
+	}
+
+	@Test
+	public void boardCachesThreeBV(){
+		Board board = new Board(30, 16);
+		MinePlacer.place(board, 99, 5);
+		assertEquals(BoardAnalyzer.threeBV(board), board.threeBV());
+		assertEquals(BoardAnalyzer.threeBV(board), board.mirror().threeBV());
+	}
+
+	private static int slowThreeBV(Board board){
+		boolean[] seen = new boolean[board.size()];
+		int[] queue = new int[board.size()];
+		int clicks = 0;
+		for(int start = 0; start < board.size(); start++){
+			if(board.isMine(start) || seen[start] || board.adjacentMines(start) != 0)
+				continue;
+			clicks++;
+			int head = 0, tail = 0;
+			seen[start] = true;
+			queue[tail++] = start;
+			while(head < tail){
+				int cell = queue[head++];
+				if(board.adjacentMines(cell) != 0)
+					continue;
+				int x = board.xOf(cell), y = board.yOf(cell);
+				for(int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, board.width() - 1); pX++){
+					for(int pY = Math.max(y - 1, 0); pY <= Math.min(y + 1, board.height() - 1); pY++){
+						int n = board.index(pX, pY);
+						if(!seen[n] && !board.isMine(n)){
+							seen[n] = true;
+							queue[tail++] = n;
+						}
+					}
+				}
+			}
+		}
+		for(int cell = 0; cell < board.size(); cell++)
+			if(!board.isMine(cell) && !seen[cell])
+				clicks++;
+		return clicks;
+	}
+}
@@ -0,0 +1,124 @@
+package minesweeper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Random games with undo and redo mixed in, played the way the panel
+ * plays them. After every step the replay has to fast forward to exactly
+ * the board on screen, and the solver can't have worked out anything
+ * that isn't so.
+ */
+public class BoardHistoryTest {
+
+	private static final int WIDTH = 16, HEIGHT = 16, MINES = 40;
+
+	@Test
+	public void replayMatchesBoardAfterUndoAndRedo(){
+		for(long seed = 0; seed < 50; seed++)
+			play(seed, 400);
+	}
+
+	private static void play(long seed, int steps){
+		SplittableRandom random = new SplittableRandom(seed);
+		Board board = new Board(WIDTH, HEIGHT);
+		MinePlacer.place(board, MINES, seed, -1);
+		Replay recording = new Replay(WIDTH, HEIGHT, MINES);
+		recording.placed(seed, -1);
+		BoardHistory history = new BoardHistory(board, recording.moves());
+		Solver solver = new Solver(board);
+		boolean lost = false;
+		for(int step = 0; step < steps && !board.isCleared(); step++){
+			int pick = random.nextInt(10), cell = random.nextInt(board.size());
+			if(lost || pick < 2){
+				//Undo, a loss goes back to where it was before the mine
+				BoardHistory.Version from = history.current(), to;
+				if(lost)
+					to = from;
+				else if(history.canUndo())
+					to = history.undo();
+				else
+					continue;
+				recording.truncate(to.moves);
+				travel(board, solver, from, to);
+				lost = false;
+			}else if(pick < 4){
+				if(!history.canRedo())
+					continue;
+				BoardHistory.Version from = history.current(), to = history.redo(recording.moves() + 1);
+				recording.record(to.action, to.cell, 0);
+				travel(board, solver, from, to);
+			}else if(pick < 5){
+				//Flag that lands after a reveal got there first, recorded but changes nothing
+				if(!board.isRevealed(cell))
+					continue;
+				recording.record(Replay.FLAG, cell, 0);
+			}else if(pick < 6){
+				if(board.isRevealed(cell))
+					continue;
+				recording.record(Replay.FLAG, cell, 0);
+				board.toggleFlag(cell);
+				history.flagged(cell, recording.moves());
+			}else if(pick < 8){
+				if(!board.canChord(cell))
+					continue;
+				recording.record(Replay.CHORD, cell, 0);
+				if(board.chordMine(cell) >= 0)
+					lost = true;
+				else
+					opened(history, solver, recording, Replay.CHORD, cell, board.chord(cell));
+			}else{
+				if(board.isRevealed(cell) || board.isFlagged(cell))
+					continue;
+				recording.record(Replay.REVEAL, cell, 0);
+				if(board.isMine(cell))
+					lost = true;
+				else
+					opened(history, solver, recording, Replay.REVEAL, cell, board.reveal(cell));
+			}
+			check(board, recording, lost, seed, step);
+			checkSolver(board, solver);
+		}
+	}
+
+	private static void opened(BoardHistory history, Solver solver, Replay recording,
+			int action, int cell, int[] opened){
+		history.opened(action, cell, opened, recording.moves());
+		solver.revealed(opened);
+	}
+
+	private static void travel(Board board, Solver solver, BoardHistory.Version from, BoardHistory.Version to){
+		board.restore(from, to);
+		solver.restored(from, to);
+	}
+
+	private static void check(Board board, Replay recording, boolean lost, long seed, int step){
+		Replay.Result result = recording.fastForward();
+		String where = "Seed "+seed+", step "+step;
+		assertEquals(lost, result.lost, where);
+		for(int cell = 0; cell < board.size(); cell++){
+			assertEquals(board.isRevealed(cell), result.board.isRevealed(cell), where+", cell "+cell);
+			assertEquals(board.isFlagged(cell), result.board.isFlagged(cell), where+", cell "+cell);
+		}
+	}
+
+	/** Whatever the solver kept through the undos and redos still has to be true */
+	private static void checkSolver(Board board, Solver solver){
+		int hint = solver.nextSafeMove();
+		if(hint >= 0){
+			assertFalse(board.isRevealed(hint));
+			assertFalse(board.isMine(hint));
+		}
+		for(int cell = 0; cell < board.size(); cell++){
+			if(solver.isKnownMine(cell))
+				assertTrue(board.isMine(cell));
+			if(solver.isKnownSafe(cell))
+				assertFalse(board.isMine(cell));
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package minesweeper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Board.reveal against a plain breadth first flood fill, on boards small
+ * enough to stay serial and big enough for the parallel fill to kick in.
+ */
+public class BoardTest {
+
+	@Test
+	public void smallFillsMatchFloodFill(){
+		for(long seed = 0; seed < 200; seed++){
+			int width = 5 + (int)(seed % 40), height = 5 + (int)(seed * 7 % 40);
+			checkFill(width, height, width * height / 8, seed);
+		}
+	}
+
+	@Test
+	public void parallelFillMatchesFloodFill(){
+		//Low density so the cascade from the corner grows well past HANDOFF
+		Board board = checkFill(2100, 2000, 2100 * 2000 / 50, 7);
+		assertTrue(board.size() >= Board.PARALLEL_CELLS);
+		assertTrue(board.size() - board.remainingLocations() > Board.HANDOFF);
+	}
+
+	@Test
+	public void parallelFillMatchesAfterReset(){
+		Board board = checkFill(2100, 2000, 2100 * 2000 / 40, 11);
+		board.reset();
+		checkFill(board, 0);
+	}
+
+	/** Places mines away from the corner and checks a reveal there */
+	private static Board checkFill(int width, int height, int mines, long seed){
+		Board board = new Board(width, height);
+		MinePlacer.place(board, mines, seed, 0);
+		checkFill(board, 0);
+		return board;
+	}
+
+	private static void checkFill(Board board, int start){
+		boolean[] expected = floodFill(board, start);
+		int expectedCount = 0;
+		for(boolean open : expected)
+			if(open)
+				expectedCount++;
+		int[] opened = board.reveal(start);
+		assertEquals(expectedCount, opened.length);
+		BitSet seen = new BitSet(board.size());
+		for(int cell : opened){
+			assertTrue(!seen.get(cell), "Opened twice: "+cell);
+			seen.set(cell);
+		}
+		for(int cell = 0; cell < board.size(); cell++){
+			assertEquals(expected[cell], board.isRevealed(cell), "Cell "+cell);
+			assertEquals(expected[cell], seen.get(cell), "Cell "+cell);
+		}
+		assertEquals(board.size() - expectedCount, board.remainingLocations());
+	}
+
+	/** Breadth first, opening the neighbours of every zero */
+	private static boolean[] floodFill(Board board, int start){
+		boolean[] open = new boolean[board.size()];
+		int[] queue = new int[board.size()];
+		int head = 0, tail = 0;
+		open[start] = true;
+		queue[tail++] = start;
+		while(head < tail){
+			int cell = queue[head++];
+			if(board.adjacentMines(cell) != 0)
+				continue;
+			int x = board.xOf(cell), y = board.yOf(cell);
+			for(int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, board.width() - 1); pX++){
+				for(int pY = Math.max(y - 1, 0); pY <= Math.min(y + 1, board.height() - 1); pY++){
+					int n = board.index(pX, pY);
+					if(!open[n]){
+						open[n] = true;
+						queue[tail++] = n;
+					}
+				}
+			}
+		}
+		return open;
+	}
+}
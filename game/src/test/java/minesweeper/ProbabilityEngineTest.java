@@ -0,0 +1,161 @@
+package minesweeper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ProbabilityEngine against trying every way the mines could be laid out,
+ * and on a frontier far too long for that, against the odds having to add
+ * up to the number of mines. An engine kept up to date move by move has
+ * to agree with one built from scratch.
+ */
+public class ProbabilityEngineTest {
+
+	@Test
+	public void oddsMatchEveryLayout(){
+		Random random = new Random(2);
+		int checked = 0;
+		while(checked < 300){
+			Board board = new Board(5, 5);
+			MinePlacer.place(board, 5 + random.nextInt(5), random.nextLong(), 12);
+			board.reveal(12);
+			for(int clicks = random.nextInt(3); clicks > 0; clicks--){
+				int cell = random.nextInt(board.size());
+				if(!board.isMine(cell))
+					board.reveal(cell);
+			}
+			if(board.isCleared() || board.remainingLocations() > 18)
+				continue;
+			ProbabilityEngine.Odds odds = new ProbabilityEngine(board, new Solver(board)).compute();
+			double[] expected = everyLayout(board);
+			for(int cell = 0; cell < board.size(); cell++)
+				assertEquals(expected[cell], odds.get(cell), 1e-9, "Cell "+cell);
+			checked++;
+		}
+	}
+
+	@Test
+	public void longFrontierStaysExact(){
+		//Two revealed rows with hidden rows either side, every number is
+		//one long component of thousands of cells
+		int width = 3000;
+		Random random = new Random(4);
+		Board board = new Board(width, 5);
+		for(int x = 0; x < width; x++)
+			for(int y = 0; y < 5; y += 2)
+				if(random.nextInt(10) < 2)
+					board.plantMine(board.index(x, y));
+		board.computeAdjacentMines();
+		int[] numbers = new int[width * 2];
+		for(int x = 0; x < width; x++){
+			numbers[x * 2] = board.index(x, 1);
+			numbers[x * 2 + 1] = board.index(x, 3);
+		}
+		board.markRevealed(numbers);
+		ProbabilityEngine engine = new ProbabilityEngine(board, new Solver(board));
+		ProbabilityEngine.Odds odds = engine.compute();
+		assertTrue(odds.isExact());
+		double mines = 0;
+		for(int cell = 0; cell < board.size(); cell++){
+			assertTrue(odds.get(cell) >= -1e-9 && odds.get(cell) <= 1 + 1e-9);
+			mines += odds.get(cell);
+			if(board.isRevealed(cell))
+				assertEquals(0, odds.get(cell));
+		}
+		assertEquals(board.numMines(), mines, 1e-6);
+	}
+
+	@Test
+	public void keptOddsMatchFreshOnes(){
+		play(16, 16, 40, 1);
+		play(30, 16, 99, 2);
+		//Sparse enough that some reveals are big enough to start over
+		play(30, 30, 40, 3);
+	}
+
+	/**
+	 * Reveals, undos and redos at random. Two solvers get told the same
+	 * things, one followed by the engine being checked, the other by a
+	 * fresh engine every step.
+	 */
+	private static void play(int width, int height, int mines, long seed){
+		Random random = new Random(seed);
+		for(int game = 0; game < 20; game++){
+			Board board = new Board(width, height);
+			MinePlacer.place(board, mines, random.nextLong(), -1);
+			Solver kept = new Solver(board), fresh = new Solver(board);
+			ProbabilityEngine engine = new ProbabilityEngine(board, kept);
+			BoardHistory history = new BoardHistory(board, 0);
+			for(int step = 0; step < 60 && !board.isCleared(); step++){
+				int pick = random.nextInt(10);
+				if(pick < 3 && (history.canUndo() || history.canRedo())){
+					BoardHistory.Version from = history.current();
+					BoardHistory.Version to = pick == 0 && history.canRedo() || !history.canUndo() ?
+							history.redo(from.moves + 1) : history.undo();
+					board.restore(from, to);
+					kept.restored(from, to);
+					fresh.restored(from, to);
+				}else{
+					int cell = random.nextInt(board.size());
+					if(board.isRevealed(cell) || board.isMine(cell))
+						continue;
+					int[] opened = board.reveal(cell);
+					history.opened(Replay.REVEAL, cell, opened, step + 1);
+					kept.revealed(opened);
+					fresh.revealed(opened);
+				}
+				ProbabilityEngine.Odds odds = engine.compute();
+				ProbabilityEngine.Odds expected = new ProbabilityEngine(board, fresh).compute();
+				for(int cell = 0; cell < board.size(); cell++){
+					String where = "Game "+game+", step "+step+", cell "+cell;
+					assertEquals(expected.get(cell), odds.get(cell), 1e-9, where);
+					assertEquals(expected.isApproximate(cell), odds.isApproximate(cell), where);
+				}
+			}
+		}
+	}
+
+	/** @return Share of the layouts that fit every number with a mine on each cell */
+	private static double[] everyLayout(Board board){
+		int[] hidden = new int[board.remainingLocations()];
+		int count = 0;
+		for(int cell = 0; cell < board.size(); cell++)
+			if(!board.isRevealed(cell))
+				hidden[count++] = cell;
+		double[] mines = new double[board.size()];
+		double layouts = 0;
+		for(int mask = 0; mask < 1 << hidden.length; mask++){
+			if(Integer.bitCount(mask) != board.numMines() || !fits(board, hidden, mask))
+				continue;
+			layouts++;
+			for(int i = 0; i < hidden.length; i++)
+				if((mask & (1 << i)) != 0)
+					mines[hidden[i]]++;
+		}
+		for(int cell = 0; cell < board.size(); cell++)
+			mines[cell] /= layouts;
+		return mines;
+	}
+
+	private static boolean fits(Board board, int[] hidden, int mask){
+		boolean[] mine = new boolean[board.size()];
+		for(int i = 0; i < hidden.length; i++)
+			mine[hidden[i]] = (mask & (1 << i)) != 0;
+		for(int cell = 0; cell < board.size(); cell++){
+			if(!board.isRevealed(cell))
+				continue;
+			int x = board.xOf(cell), y = board.yOf(cell), around = 0;
+			for(int pX = Math.max(x - 1, 0); pX <= Math.min(x + 1, board.width() - 1); pX++)
+				for(int pY = Math.max(y - 1, 0); pY <= Math.min(y + 1, board.height() - 1); pY++)
+					if(mine[board.index(pX, pY)])
+						around++;
+			if(around != board.adjacentMines(cell))
+				return false;
+		}
+		return true;
+	}
+}